@@ -0,0 +1,45 @@
+package sil.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scaling of the parallel chunked beautifier from one thread to many on a large generated source. The sequential
+ * beautifier is measured by LoaderBenchmark.beautify, thread counts above the number of cores only show the overhead.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BeautifyScalingBenchmark {
+
+    @Param({"1000000"})
+    int lineCount;
+
+    @Param({"1", "2", "4", "8", "16", "32"})
+    int threads;
+
+    private List<String> rawFileLines;
+    private ForkJoinPool pool;
+
+    @Setup
+    public void generate() {
+        rawFileLines = SILWorkloadGenerator.largeSource(lineCount, SILWorkloadGenerator.DEFAULT_SEED);
+        pool = new ForkJoinPool(threads);
+    }
+
+    @TearDown
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public Object parallel() throws Throwable {
+        return SILRuntime.beautify(rawFileLines, pool);
+    }
+}
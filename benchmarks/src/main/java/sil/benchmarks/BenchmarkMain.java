@@ -0,0 +1,24 @@
+package sil.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of benchmarks.jar. It accepts the usual JMH command line and always adds the GC profiler,
+ * so every result comes with its allocation rate (same as -prof gc).
+ */
+public final class BenchmarkMain {
+
+    private BenchmarkMain() { }
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLineOptions);
+        if (commandLineOptions.getProfilers().stream().noneMatch(profiler -> profiler.getKlass().equals("gc")))
+            options.addProfiler(GCProfiler.class);
+        new Runner(options.build()).run();
+    }
+}
@@ -0,0 +1,77 @@
+package sil.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Size of a checkpoint and the time to write it, read it and resume from it, for programs whose setup phase left
+ * a large operational stack. The setup runs once with --checkpoint-at, resuming restores the stack and runs the
+ * single END line after the checkpoint. The checkpoint size is printed when the trial starts.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class CheckpointBenchmark {
+
+    @Param({"1000", "1000000", "10000000"})
+    int stackSize;
+
+    private Path directory;
+    private Path checkpointFile;
+    private Path writtenFile;
+    private Object program;
+    private Object checkpoint;
+
+    @Setup
+    public void takeCheckpoint() throws Throwable {
+        directory = Files.createTempDirectory("sil-checkpoint");
+        checkpointFile = directory.resolve("setup.silcp");
+        writtenFile = directory.resolve("written.silcp");
+        List<String> source = List.of(
+                "10 INTEGER I",
+                "20 LET I = 0",
+                "30 PUSH I",
+                "40 LET I = I + 1",
+                "50 IF I < "+stackSize+" THEN GOTO 30",
+                "60 END");
+        Path sourceFile = Files.write(directory.resolve("setup.sil"), source);
+        SILRuntime.run(sourceFile, new byte[0], OutputStream.nullOutputStream(),
+                "--checkpoint", checkpointFile.toString(), "--checkpoint-at", "60");
+        program = SILRuntime.compileProgram("setup.sil", source);
+        checkpoint = SILRuntime.readCheckpoint(checkpointFile);
+        System.out.println("Checkpoint of "+stackSize+" stack values: "+Files.size(checkpointFile)+" bytes");
+    }
+
+    @TearDown
+    public void deleteFiles() throws Exception {
+        try (var files = Files.list(directory)) {
+            for (Path file: (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Benchmark
+    public void write() throws Throwable {
+        SILRuntime.writeCheckpoint(checkpoint, writtenFile);
+    }
+
+    @Benchmark
+    public Object read() throws Throwable {
+        return SILRuntime.readCheckpoint(checkpointFile);
+    }
+
+    @Benchmark
+    public void readAndResume() throws Throwable {
+        SILRuntime.resumeProgram(program, SILRuntime.readCheckpoint(checkpointFile), OutputStream.nullOutputStream());
+    }
+}
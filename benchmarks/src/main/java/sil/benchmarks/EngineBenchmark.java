@@ -0,0 +1,55 @@
+package sil.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of one compiled SILProgram run concurrently by many threads, the way a service embeds the parser.
+ * The program is compiled once and shared, every run takes a pooled execution context. The single threaded
+ * benchmark is the baseline, run the benchmark with -t to measure other thread counts. The body of the large loop
+ * translates into more bytecode than HotSpot compiles in one method, it measures the split of the JIT tier.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EngineBenchmark {
+
+    @Param({"GOTO_LOOP", "GOSUB_NESTING", "PRINT_HEAVY", "INPUT_HEAVY", "LARGE_LOOP"})
+    SILWorkloadGenerator.Workload workload;
+
+    @Param({"1000"})
+    int iterations;
+
+    // space separated command line options
+    @Param({"", "--jit"})
+    String options;
+
+    private Object program;
+    private byte[] input;
+
+    @Setup
+    public void compile() throws Throwable {
+        program = SILRuntime.compileProgram(workload.name(),
+                SILWorkloadGenerator.generate(workload, iterations, SILWorkloadGenerator.DEFAULT_SEED),
+                options.isEmpty() ? new String[0] : options.split(" "));
+        input = workload == SILWorkloadGenerator.Workload.INPUT_HEAVY
+                ? SILWorkloadGenerator.inputValues(iterations, SILWorkloadGenerator.DEFAULT_SEED) : new byte[0];
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void runOnOneThread() throws Throwable {
+        SILRuntime.runProgram(program, input, OutputStream.nullOutputStream());
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public void runOnAllCores() throws Throwable {
+        SILRuntime.runProgram(program, input, OutputStream.nullOutputStream());
+    }
+}
@@ -0,0 +1,34 @@
+package sil.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Evaluation of compiled postfix expressions of growing nesting depth, the hot path of LET, PUSH, IF and PRINT.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ExpressionBenchmark {
+
+    @Param({"0", "1", "4", "16", "64"})
+    int depth;
+
+    private SILRuntime.CompiledExpression expression;
+
+    @Setup
+    public void compile() throws Throwable {
+        String source = SILWorkloadGenerator.expression(new Random(SILWorkloadGenerator.DEFAULT_SEED), depth);
+        expression = SILRuntime.compileExpression(source, "A, B, C", 3, 5, 7);
+    }
+
+    @Benchmark
+    public int evaluate() throws Throwable {
+        return expression.evaluate();
+    }
+}
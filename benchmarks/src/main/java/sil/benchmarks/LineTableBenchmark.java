@@ -0,0 +1,78 @@
+package sil.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The LineTable against the LinkedHashMap of code lines and the list of line numbers copied from its keys that it
+ * replaced. Building measures the memory per line through the gc.alloc.rate.norm of the GC profiler divided by the
+ * line count, all the lines share one code String so only the structures are counted.
+ * Finding the line a GOSUB jumps to compares List.indexOf with the LineTable lookup.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class LineTableBenchmark {
+
+    private static final String CODE = "LET I = I + 1";
+
+    @Param({"1000000", "10000000"})
+    int lineCount;
+
+    private int[] lineNumbers;
+    private LinkedHashMap<Integer, String> codeLines;
+    private List<Integer> lineNumberList;
+    private Object lineTable;
+    private int lookupLineNumber;
+
+    @Setup
+    public void generate() throws Throwable {
+        lineNumbers = new int[lineCount];
+        for (int i = 0; i < lineCount; i++) {
+            lineNumbers[i] = (i + 1) * 10;
+        }
+        codeLines = buildLinkedHashMap();
+        lineNumberList = buildLineNumberList();
+        lineTable = SILRuntime.lineTable(lineNumbers, CODE);
+        // a line in the middle of the program, List.indexOf scans half of the lines to find it
+        lookupLineNumber = lineNumbers[lineCount / 2];
+    }
+
+    @Benchmark
+    public LinkedHashMap<Integer, String> buildLinkedHashMap() {
+        LinkedHashMap<Integer, String> codeLines = new LinkedHashMap<>();
+        for (int lineNumber: lineNumbers) {
+            codeLines.put(lineNumber, CODE);
+        }
+        return codeLines;
+    }
+
+    @Benchmark
+    public List<Integer> buildLineNumberList() {
+        return new ArrayList<>(codeLines.keySet());
+    }
+
+    @Benchmark
+    public Object buildLineTable() throws Throwable {
+        return SILRuntime.lineTable(lineNumbers, CODE);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public int findLineInList() {
+        return lineNumberList.indexOf(lookupLineNumber);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public int findLineInLineTable() throws Throwable {
+        return SILRuntime.jumpTargetOf(lineTable, lookupLineNumber);
+    }
+}
@@ -0,0 +1,73 @@
+package sil.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loading of large generated sources: beautifying the raw lines, compiling the beautified lines
+ * and the single pass mapped loader that does both straight from the file.
+ * <p>
+ * The setup holds the raw and the beautified lines in memory, so files of many millions of lines are measured
+ * outside of JMH with the load time and peak heap reported by --stats, files of 64 MB or more are always mapped:
+ * <pre>
+ * java -cp benchmarks.jar sil.benchmarks.SILWorkloadGenerator LARGE_SOURCE 20000000 large.sil
+ * java -Xmx4600m -cp benchmarks.jar Main --stats large.sil &gt; /dev/null
+ * </pre>
+ * On one core with 5 GB of memory:
+ * <pre>
+ *   lines   file    sequential            mapped
+ *    2 M     54 MB   9.2 s,  691 MB heap   5.6 s,  362 MB heap
+ *    5 M    137 MB                         9.6 s,  950 MB heap
+ *   20 M    560 MB                        31.5 s, 3800 MB heap
+ * </pre>
+ * The compiled program takes about 190 bytes of heap per line, a file of 50 million lines needs a heap of about
+ * 9.5 GB whichever loader reads it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LoaderBenchmark {
+
+    @Param({"1000", "100000"})
+    int lineCount;
+
+    private List<String> rawFileLines;
+    private Object codeLines;
+    private Path source;
+
+    @Setup
+    public void generate() throws Throwable {
+        rawFileLines = SILWorkloadGenerator.largeSource(lineCount, SILWorkloadGenerator.DEFAULT_SEED);
+        codeLines = SILRuntime.beautify(rawFileLines);
+        source = Files.createTempFile("large-source", ".sil");
+        Files.write(source, rawFileLines);
+    }
+
+    @TearDown
+    public void delete() throws IOException {
+        Files.deleteIfExists(source);
+    }
+
+    @Benchmark
+    public Object beautify() throws Throwable {
+        return SILRuntime.beautify(rawFileLines);
+    }
+
+    @Benchmark
+    public Object compile() throws Throwable {
+        return SILRuntime.compile(codeLines);
+    }
+
+    @Benchmark
+    public Object loadMapped() throws Throwable {
+        return SILRuntime.loadMapped(source);
+    }
+}
@@ -0,0 +1,57 @@
+package sil.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Whole program runs the way Main runs them: tight GOTO loops, deep GOSUB nesting, PRINT heavy
+ * and INPUT heavy programs, with and without the optimizer. Running without --profile against the same
+ * benchmark of an earlier build shows the cost of the profiler when it is off, running with it shows its cost
+ * when it is on. The output is discarded and the input is replayed from memory,
+ * so only the parser and the interpreter are measured.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProgramBenchmark {
+
+    @Param({"GOTO_LOOP", "GOSUB_NESTING", "PRINT_HEAVY", "INPUT_HEAVY"})
+    SILWorkloadGenerator.Workload workload;
+
+    @Param({"100000"})
+    int iterations;
+
+    // space separated command line options
+    @Param({"", "--no-fuse", "--optimize", "--profile --profile-report /dev/null"})
+    String options;
+
+    private Path source;
+    private byte[] input;
+
+    @Setup
+    public void generate() throws IOException {
+        source = Files.createTempFile(workload.name().toLowerCase(), ".sil");
+        Files.write(source, SILWorkloadGenerator.generate(workload, iterations, SILWorkloadGenerator.DEFAULT_SEED));
+        input = workload == SILWorkloadGenerator.Workload.INPUT_HEAVY
+                ? SILWorkloadGenerator.inputValues(iterations, SILWorkloadGenerator.DEFAULT_SEED) : new byte[0];
+    }
+
+    @TearDown
+    public void delete() throws IOException {
+        Files.deleteIfExists(source);
+    }
+
+    @Benchmark
+    public void run() throws Throwable {
+        SILRuntime.run(source, input, OutputStream.nullOutputStream(),
+                options.isEmpty() ? new String[0] : options.split(" "));
+    }
+}
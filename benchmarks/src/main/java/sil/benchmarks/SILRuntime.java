@@ -0,0 +1,371 @@
+package sil.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Bridge from the benchmarks to the parser. The parser classes live in the default package, which can not be
+ * imported from a named package and which JMH does not accept for benchmark classes, so the members used by the
+ * benchmarks are resolved once as method handles. The handles are constants, so the JIT inlines through them
+ * just like through a direct call.
+ */
+final class SILRuntime {
+
+    private static final MethodHandle NEW_SYMBOL_TABLE;
+    private static final MethodHandle COMPILE_CODE_LINE;
+    private static final MethodHandle INSTRUCTION_EXPRESSION;
+    private static final MethodHandle NEW_VARIABLE_FRAME;
+    private static final MethodHandle DECLARE;
+    private static final MethodHandle ASSIGN;
+    private static final MethodHandle NEW_INT_STACK;
+    private static final MethodHandle EVALUATE;
+    private static final MethodHandle NEW_LINE_TABLE;
+    private static final MethodHandle PUT_LINE;
+    private static final MethodHandle JUMP_TARGET_OF;
+    private static final MethodHandle BEAUTIFY;
+    private static final MethodHandle BEAUTIFY_PARALLEL;
+    private static final MethodHandle COMPILE;
+    private static final MethodHandle NEW_SIL_FILE;
+    private static final MethodHandle LOAD_MAPPED;
+    private static final MethodHandle PARSE_OPTIONS;
+    private static final MethodHandle NEW_OUTPUT_SINK;
+    private static final MethodHandle NEW_INPUT_READER;
+    private static final MethodHandle NEW_FILE_PARSER;
+    private static final MethodHandle PARSE;
+    private static final MethodHandle COMPILE_PROGRAM;
+    private static final MethodHandle RUN_PROGRAM;
+    private static final MethodHandle READ_CHECKPOINT;
+    private static final MethodHandle WRITE_CHECKPOINT;
+    private static final MethodHandle RESUME_PROGRAM;
+    private static final MethodHandle NEW_SESSION_RUNNER;
+    private static final MethodHandle USES_VIRTUAL_THREADS;
+    private static final MethodHandle OPEN_SESSION;
+    private static final MethodHandle CLOSE_SESSION_RUNNER;
+    private static final MethodHandle SEND;
+    private static final MethodHandle TAKE_OUTPUT;
+
+    static {
+        try {
+            Class<?> symbolTable = Class.forName("SymbolTable");
+            Class<?> instruction = Class.forName("Instruction");
+            Class<?> expression = Class.forName("Expression");
+            Class<?> variableFrame = Class.forName("VariableFrame");
+            Class<?> intStack = Class.forName("IntStack");
+            Class<?> silFile = Class.forName("SILFile");
+            Class<?> silOptions = Class.forName("SILOptions");
+            Class<?> outputSink = Class.forName("OutputSink");
+            Class<?> inputReader = Class.forName("BufferedInputReader");
+            Class<?> fileParser = Class.forName("FileParser");
+            NEW_SYMBOL_TABLE = generic(lookup(symbolTable).findConstructor(symbolTable,
+                    MethodType.methodType(void.class)));
+            COMPILE_CODE_LINE = generic(lookup(Class.forName("SILCompiler")).findStatic(Class.forName("SILCompiler"),
+                    "compileCodeLine", MethodType.methodType(instruction, int.class, String.class, symbolTable)));
+            INSTRUCTION_EXPRESSION = generic(lookup(instruction).findGetter(instruction, "expression", expression));
+            NEW_VARIABLE_FRAME = generic(lookup(variableFrame).findConstructor(variableFrame,
+                    MethodType.methodType(void.class, symbolTable)));
+            DECLARE = generic(lookup(variableFrame).findVirtual(variableFrame, "declare",
+                    MethodType.methodType(void.class, int.class)));
+            ASSIGN = generic(lookup(variableFrame).findVirtual(variableFrame, "assign",
+                    MethodType.methodType(void.class, int.class, int.class)));
+            NEW_INT_STACK = generic(lookup(intStack).findConstructor(intStack, MethodType.methodType(void.class)));
+            EVALUATE = generic(lookup(expression).findVirtual(expression, "evaluate",
+                    MethodType.methodType(int.class, variableFrame, intStack)));
+            Class<?> lineTable = Class.forName("LineTable");
+            NEW_LINE_TABLE = generic(lookup(lineTable).findConstructor(lineTable, MethodType.methodType(void.class)));
+            PUT_LINE = generic(lookup(lineTable).findVirtual(lineTable, "put",
+                    MethodType.methodType(boolean.class, int.class, String.class)));
+            JUMP_TARGET_OF = generic(lookup(lineTable).findVirtual(lineTable, "jumpTargetOf",
+                    MethodType.methodType(int.class, int.class)));
+            BEAUTIFY = generic(lookup(Class.forName("SILFileBeautifier")).findStatic(
+                    Class.forName("SILFileBeautifier"), "beautify",
+                    MethodType.methodType(void.class, List.class, lineTable)));
+            Class<?> lineOrder = Class.forName("SILFileBeautifier$LineOrder");
+            BEAUTIFY_PARALLEL = generic(lookup(Class.forName("SILFileBeautifier")).findStatic(
+                    Class.forName("SILFileBeautifier"), "beautify",
+                    MethodType.methodType(lineOrder, List.class, lineTable, ForkJoinPool.class)));
+            COMPILE = generic(lookup(Class.forName("SILCompiler")).findStatic(Class.forName("SILCompiler"), "compile",
+                    MethodType.methodType(instruction.arrayType(), lineTable, symbolTable)));
+            NEW_SIL_FILE = generic(lookup(silFile).findConstructor(silFile, MethodType.methodType(void.class)));
+            LOAD_MAPPED = generic(lookup(silFile).findVirtual(silFile, "initializeSILFileState",
+                    MethodType.methodType(void.class, Path.class)));
+            PARSE_OPTIONS = generic(lookup(silOptions).findStatic(silOptions, "parse",
+                    MethodType.methodType(silOptions, String[].class)));
+            Class<?> streamOutputSink = Class.forName("StreamOutputSink");
+            NEW_OUTPUT_SINK = generic(lookup(streamOutputSink).findConstructor(streamOutputSink,
+                    MethodType.methodType(void.class, OutputStream.class)));
+            Class<?> streamInputReader = Class.forName("StreamInputReader");
+            NEW_INPUT_READER = generic(lookup(streamInputReader).findConstructor(streamInputReader,
+                    MethodType.methodType(void.class, InputStream.class)));
+            NEW_FILE_PARSER = generic(lookup(fileParser).findConstructor(fileParser,
+                    MethodType.methodType(void.class, silOptions, outputSink, inputReader)));
+            PARSE = generic(lookup(fileParser).findVirtual(fileParser, "parse",
+                    MethodType.methodType(void.class, File.class)));
+            Class<?> silProgram = Class.forName("SILProgram");
+            COMPILE_PROGRAM = generic(lookup(silProgram).findStatic(silProgram, "compile",
+                    MethodType.methodType(silProgram, String.class, List.class, silOptions)));
+            RUN_PROGRAM = generic(lookup(silProgram).findVirtual(silProgram, "run",
+                    MethodType.methodType(void.class, outputSink, inputReader)));
+            Class<?> checkpoint = Class.forName("SILCheckpoint");
+            READ_CHECKPOINT = generic(lookup(checkpoint).findStatic(checkpoint, "read",
+                    MethodType.methodType(checkpoint, Path.class)));
+            WRITE_CHECKPOINT = generic(lookup(checkpoint).findVirtual(checkpoint, "write",
+                    MethodType.methodType(void.class, Path.class)));
+            RESUME_PROGRAM = generic(lookup(silProgram).findVirtual(silProgram, "resume",
+                    MethodType.methodType(void.class, checkpoint, outputSink, inputReader)));
+            Class<?> sessionRunner = Class.forName("SILSessionRunner");
+            Class<?> session = Class.forName("SILSession");
+            NEW_SESSION_RUNNER = generic(lookup(sessionRunner).findConstructor(sessionRunner,
+                    MethodType.methodType(void.class)));
+            USES_VIRTUAL_THREADS = generic(lookup(sessionRunner).findVirtual(sessionRunner, "usesVirtualThreads",
+                    MethodType.methodType(boolean.class)));
+            OPEN_SESSION = generic(lookup(sessionRunner).findVirtual(sessionRunner, "open",
+                    MethodType.methodType(session, silProgram)));
+            CLOSE_SESSION_RUNNER = generic(lookup(sessionRunner).findVirtual(sessionRunner, "close",
+                    MethodType.methodType(void.class)));
+            SEND = generic(lookup(session).findVirtual(session, "send",
+                    MethodType.methodType(void.class, String.class)));
+            TAKE_OUTPUT = generic(lookup(session).findVirtual(session, "takeOutput",
+                    MethodType.methodType(byte[].class)));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private SILRuntime() { }
+
+    // the benchmarks share the unnamed module with the parser, so its package private members are accessible
+    private static MethodHandles.Lookup lookup(Class<?> target) throws IllegalAccessException {
+        return MethodHandles.privateLookupIn(target, MethodHandles.lookup());
+    }
+
+    // parser types are replaced by Object so that the handles can be invoked exactly without naming those types
+    private static MethodHandle generic(MethodHandle handle) {
+        MethodType type = handle.type();
+        for (int i = 0; i < type.parameterCount(); i++) {
+            if (!type.parameterType(i).isPrimitive())
+                type = type.changeParameterType(i, Object.class);
+        }
+        if (!type.returnType().isPrimitive())
+            type = type.changeReturnType(Object.class);
+        return handle.asType(type);
+    }
+
+    /**
+     * Compiles an expression whose variables are declared and set to the given values
+     * @param expression is the SIL expression
+     * @param variableNames is the comma separated list of the variables used by the expression
+     * @param values are the values of the variables in the order of the list
+     * @return the compiled expression bound to its variables
+     */
+    static CompiledExpression compileExpression(String expression, String variableNames, int... values)
+            throws Throwable {
+        Object symbolTable = NEW_SYMBOL_TABLE.invokeExact();
+        // the declaration gives the variables the slots of their position in the list
+        Object declaration = COMPILE_CODE_LINE.invokeExact(5, (Object) ("INTEGER "+variableNames), symbolTable);
+        Object instruction = COMPILE_CODE_LINE.invokeExact(10, (Object) ("PUSH "+expression), symbolTable);
+        Object compiledExpression = INSTRUCTION_EXPRESSION.invokeExact(instruction);
+        if (compiledExpression == null)
+            throw new IllegalArgumentException("Invalid expression "+expression);
+        Object variables = NEW_VARIABLE_FRAME.invokeExact(symbolTable);
+        for (int slot = 0; slot < values.length; slot++) {
+            DECLARE.invokeExact(variables, slot);
+            ASSIGN.invokeExact(variables, slot, values[slot]);
+        }
+        return new CompiledExpression(compiledExpression, variables, NEW_INT_STACK.invokeExact());
+    }
+
+    static final class CompiledExpression {
+        private final Object expression;
+        private final Object variables;
+        private final Object stack;
+
+        private CompiledExpression(Object expression, Object variables, Object stack) {
+            this.expression = expression;
+            this.variables = variables;
+            this.stack = stack;
+        }
+
+        int evaluate() throws Throwable {
+            return (int) EVALUATE.invokeExact(expression, variables, stack);
+        }
+    }
+
+    /**
+     * Builds a LineTable
+     * @param lineNumbers are the line numbers in file order
+     * @param code is the code of every line
+     * @return the LineTable
+     */
+    static Object lineTable(int[] lineNumbers, String code) throws Throwable {
+        Object lineTable = NEW_LINE_TABLE.invokeExact();
+        for (int lineNumber: lineNumbers) {
+            boolean replaced = (boolean) PUT_LINE.invokeExact(lineTable, lineNumber, (Object) code);
+        }
+        return lineTable;
+    }
+
+    /**
+     * Looks up the line a GOTO or GOSUB continues at
+     * @param lineTable is a LineTable
+     * @param lineNumber is the line number written in the jump
+     * @return the index of the target line
+     */
+    static int jumpTargetOf(Object lineTable, int lineNumber) throws Throwable {
+        return (int) JUMP_TARGET_OF.invokeExact(lineTable, lineNumber);
+    }
+
+    /**
+     * Beautifies raw source lines
+     * @param rawFileLines are the lines of a SIL file
+     * @return the LineTable of the beautified code lines
+     */
+    static Object beautify(List<String> rawFileLines) throws Throwable {
+        Object codeLines = NEW_LINE_TABLE.invokeExact();
+        BEAUTIFY.invokeExact((Object) rawFileLines, codeLines);
+        return codeLines;
+    }
+
+    /**
+     * Beautifies raw source lines in parallel chunks
+     * @param rawFileLines are the lines of a SIL file
+     * @param pool runs the chunks
+     * @return the LineTable of the beautified code lines
+     */
+    static Object beautify(List<String> rawFileLines, ForkJoinPool pool) throws Throwable {
+        Object codeLines = NEW_LINE_TABLE.invokeExact();
+        // the order of the line numbers is not needed by the benchmarks
+        Object lineOrder = BEAUTIFY_PARALLEL.invokeExact((Object) rawFileLines, codeLines, (Object) pool);
+        return codeLines;
+    }
+
+    /**
+     * Compiles beautified code lines
+     * @param codeLines is the LineTable of the beautified code lines
+     * @return the instruction array
+     */
+    static Object compile(Object codeLines) throws Throwable {
+        return COMPILE.invokeExact(codeLines, NEW_SYMBOL_TABLE.invokeExact());
+    }
+
+    /**
+     * Loads a source file with the mapped single pass loader
+     * @param source is the SIL file
+     * @return the loaded SILFile
+     */
+    static Object loadMapped(Path source) throws Throwable {
+        Object silFile = NEW_SIL_FILE.invokeExact();
+        LOAD_MAPPED.invokeExact(silFile, (Object) source);
+        return silFile;
+    }
+
+    /**
+     * Runs a SIL program like Main does
+     * @param source is the SIL file
+     * @param input holds the lines read by INPUT instructions
+     * @param output receives everything the program prints
+     * @param options are command line options such as --optimize
+     */
+    static void run(Path source, byte[] input, OutputStream output, String... options) throws Throwable {
+        Object silOptions = PARSE_OPTIONS.invokeExact((Object) options);
+        Object outputSink = NEW_OUTPUT_SINK.invokeExact((Object) output);
+        Object inputReader = NEW_INPUT_READER.invokeExact((Object) new ByteArrayInputStream(input));
+        Object fileParser = NEW_FILE_PARSER.invokeExact(silOptions, outputSink, inputReader);
+        PARSE.invokeExact(fileParser, (Object) source.toFile());
+    }
+
+    /**
+     * Compiles a program once so that it can be run many times
+     * @param name names the program
+     * @param sourceLines are the lines of the program
+     * @param options are command line options such as --optimize
+     * @return the SILProgram
+     */
+    static Object compileProgram(String name, List<String> sourceLines, String... options) throws Throwable {
+        Object silOptions = PARSE_OPTIONS.invokeExact((Object) options);
+        return COMPILE_PROGRAM.invokeExact((Object) name, (Object) sourceLines, silOptions);
+    }
+
+    /**
+     * Runs a compiled program with a pooled execution context
+     * @param program is a SILProgram
+     * @param input holds the lines read by INPUT instructions
+     * @param output receives everything the program prints
+     */
+    static void runProgram(Object program, byte[] input, OutputStream output) throws Throwable {
+        Object outputSink = NEW_OUTPUT_SINK.invokeExact((Object) output);
+        Object inputReader = NEW_INPUT_READER.invokeExact((Object) new ByteArrayInputStream(input));
+        RUN_PROGRAM.invokeExact(program, outputSink, inputReader);
+    }
+
+    /**
+     * Reads a checkpoint file
+     * @param file was written by --checkpoint
+     * @return the SILCheckpoint
+     */
+    static Object readCheckpoint(Path file) throws Throwable {
+        return READ_CHECKPOINT.invokeExact((Object) file);
+    }
+
+    /**
+     * Writes a checkpoint file
+     * @param checkpoint is a SILCheckpoint
+     * @param file is replaced by the checkpoint
+     */
+    static void writeCheckpoint(Object checkpoint, Path file) throws Throwable {
+        WRITE_CHECKPOINT.invokeExact(checkpoint, (Object) file);
+    }
+
+    /**
+     * Runs a compiled program from a checkpoint with a pooled execution context
+     * @param program is a SILProgram
+     * @param checkpoint is a SILCheckpoint taken from the program
+     * @param output receives everything the program prints
+     */
+    static void resumeProgram(Object program, Object checkpoint, OutputStream output) throws Throwable {
+        Object outputSink = NEW_OUTPUT_SINK.invokeExact((Object) output);
+        Object inputReader = NEW_INPUT_READER.invokeExact((Object) new ByteArrayInputStream(new byte[0]));
+        RESUME_PROGRAM.invokeExact(program, checkpoint, outputSink, inputReader);
+    }
+
+    // creates a SILSessionRunner
+    static Object newSessionRunner() throws Throwable {
+        return NEW_SESSION_RUNNER.invokeExact();
+    }
+
+    static boolean usesVirtualThreads(Object sessionRunner) throws Throwable {
+        return (boolean) USES_VIRTUAL_THREADS.invokeExact(sessionRunner);
+    }
+
+    /**
+     * Starts an interactive session
+     * @param sessionRunner is a SILSessionRunner
+     * @param program is a SILProgram
+     * @return the SILSession
+     */
+    static Object openSession(Object sessionRunner, Object program) throws Throwable {
+        return OPEN_SESSION.invokeExact(sessionRunner, program);
+    }
+
+    static void closeSessionRunner(Object sessionRunner) throws Throwable {
+        CLOSE_SESSION_RUNNER.invokeExact(sessionRunner);
+    }
+
+    // sends a line to the INPUT instructions of a SILSession
+    static void send(Object session, String line) throws Throwable {
+        SEND.invokeExact(session, (Object) line);
+    }
+
+    // waits for the next output of a SILSession
+    static byte[] takeOutput(Object session) throws Throwable {
+        Object output = TAKE_OUTPUT.invokeExact(session);
+        return (byte[]) output;
+    }
+}
@@ -0,0 +1,211 @@
+package sil.benchmarks;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates synthetic SIL workloads of a chosen size. The same workload, size and seed always produce the same
+ * program, so benchmark results can be reproduced outside of JMH as well:
+ * java -cp benchmarks.jar sil.benchmarks.SILWorkloadGenerator WORKLOAD SIZE FILE [SEED]
+ * The input of an INPUT heavy program is written next to it as FILE.input.
+ */
+public final class SILWorkloadGenerator {
+
+    static final long DEFAULT_SEED = 42;
+    // lines of the body of a large loop, enough for the JIT tier to split its translation into several methods
+    static final int LARGE_LOOP_LINES = 300;
+
+    /**
+     * The workloads covered by the benchmarks, the size is the number of loop iterations
+     * or, for a large source, the number of lines
+     */
+    public enum Workload {
+        GOTO_LOOP, GOSUB_NESTING, PRINT_HEAVY, INPUT_HEAVY, LARGE_LOOP, LARGE_SOURCE
+    }
+
+    private SILWorkloadGenerator() { }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.err.println("Usage: SILWorkloadGenerator GOTO_LOOP|GOSUB_NESTING|PRINT_HEAVY|INPUT_HEAVY|LARGE_LOOP"
+                    +"|LARGE_SOURCE SIZE FILE [SEED]");
+            return;
+        }
+        Workload workload = Workload.valueOf(args[0].toUpperCase().replace('-', '_'));
+        int size = Integer.parseInt(args[1]);
+        Path file = Path.of(args[2]);
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : DEFAULT_SEED;
+        Files.write(file, generate(workload, size, seed), StandardCharsets.UTF_8);
+        if (workload == Workload.INPUT_HEAVY)
+            Files.write(Path.of(args[2]+".input"), inputValues(size, seed));
+    }
+
+    /**
+     * Generates the source lines of a workload
+     * @param workload is the kind of program
+     * @param size is the number of loop iterations or source lines
+     * @param seed makes the random parts of the program reproducible
+     * @return the raw source lines
+     */
+    static List<String> generate(Workload workload, int size, long seed) {
+        return switch (workload) {
+            case GOTO_LOOP -> gotoLoop(size);
+            case GOSUB_NESTING -> gosubNesting(16, size);
+            case PRINT_HEAVY -> printHeavy(size);
+            case INPUT_HEAVY -> inputHeavy(size);
+            case LARGE_LOOP -> largeLoop(LARGE_LOOP_LINES, size);
+            case LARGE_SOURCE -> largeSource(size, seed);
+        };
+    }
+
+    // a counting loop closed by IF ... THEN GOTO
+    static List<String> gotoLoop(int iterations) {
+        return List.of(
+                "10 INTEGER I, S",
+                "20 LET I = 0",
+                "30 LET S = 0",
+                "40 LET S = S + I * 3 - (I / 7)",
+                "50 LET I = I + 1",
+                "60 IF I < "+iterations+" THEN GOTO 40",
+                "70 PRINTLN S",
+                "80 END");
+    }
+
+    // every iteration descends through a chain of sub routines of the given depth
+    static List<String> gosubNesting(int depth, int iterations) {
+        List<String> lines = new ArrayList<>(List.of(
+                "10 INTEGER I, D",
+                "20 LET I = 0",
+                "30 LET D = 0",
+                "40 GOSUB 1000",
+                "50 LET I = I + 1",
+                "60 IF I < "+iterations+" THEN GOTO 40",
+                "70 PRINTLN D",
+                "80 END"));
+        for (int level = 0; level < depth; level++) {
+            int lineNumber = 1000 + level * 10;
+            lines.add(lineNumber+" LET D = D + 1");
+            lines.add((lineNumber + 1)+(level + 1 < depth ? " GOSUB "+(lineNumber + 10) : " LET D = D - "+depth));
+            lines.add((lineNumber + 2)+" RET");
+        }
+        return lines;
+    }
+
+    static List<String> printHeavy(int iterations) {
+        return List.of(
+                "10 INTEGER I",
+                "20 LET I = 0",
+                "30 PRINT \"value \"",
+                "40 PRINT I",
+                "50 PRINT \" squared \"",
+                "60 PRINTLN I * I",
+                "70 LET I = I + 1",
+                "80 IF I < "+iterations+" THEN GOTO 30",
+                "90 END");
+    }
+
+    // reads two values per iteration, see inputValues for the matching input
+    static List<String> inputHeavy(int iterations) {
+        return List.of(
+                "10 INTEGER A, B, S, N",
+                "20 LET S = 0",
+                "30 LET N = 0",
+                "40 INPUT A, B",
+                "50 LET S = S + A - B",
+                "60 LET N = N + 1",
+                "70 IF N < "+iterations+" THEN GOTO 40",
+                "80 PRINTLN S",
+                "90 END");
+    }
+
+    // a loop with a long body of assignments, closed by IF ... THEN GOTO
+    static List<String> largeLoop(int bodyLines, int iterations) {
+        List<String> lines = new ArrayList<>(List.of(
+                "10 INTEGER I, S",
+                "20 LET I = 0",
+                "30 LET S = 0"));
+        for (int line = 0; line < bodyLines; line++) {
+            lines.add((100 + line)+" LET S = S + I * "+(line % 7 + 1)+" - (I / "+(line % 5 + 1)+")");
+        }
+        int lineNumber = 100 + bodyLines;
+        lines.add(lineNumber+" LET I = I + 1");
+        lines.add((lineNumber + 1)+" IF I < "+iterations+" THEN GOTO 100");
+        lines.add((lineNumber + 2)+" PRINTLN S");
+        lines.add((lineNumber + 3)+" END");
+        return lines;
+    }
+
+    /**
+     * Generates the input lines read by an INPUT heavy program
+     * @param iterations is the number of lines
+     * @param seed makes the values reproducible
+     * @return the input bytes
+     */
+    static byte[] inputValues(int iterations, long seed) {
+        Random random = new Random(seed);
+        StringBuilder input = new StringBuilder(iterations * 12);
+        for (int i = 0; i < iterations; i++) {
+            input.append(random.nextInt(2_000_001) - 1_000_000).append(' ').append(random.nextInt(1_000_000))
+                    .append('\n');
+        }
+        return input.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Generates a long straight line program mixing every instruction, with irregular spacing and lower case
+     * keywords so that the beautifier has real work to do
+     * @param lineCount is the number of lines
+     * @param seed makes the program reproducible
+     * @return the raw source lines
+     */
+    static List<String> largeSource(int lineCount, long seed) {
+        Random random = new Random(seed);
+        List<String> lines = new ArrayList<>(lineCount);
+        lines.add("1 INTEGER A, B, C, TOTAL");
+        lines.add("2 LET A = 1");
+        lines.add("3 LET B = 2");
+        lines.add("4 LET C = 3");
+        for (int lineNumber = 5; lineNumber < lineCount; lineNumber++) {
+            String line = switch (random.nextInt(6)) {
+                case 0 -> "LET TOTAL = "+expression(random, 1 + random.nextInt(4));
+                case 1 -> "let  A  =  A + "+random.nextInt(100);
+                case 2 -> "IF A > "+random.nextInt(1000)+" THEN PRINTLN \"over  "+random.nextInt(1000)+"\"";
+                case 3 -> "PUSH  B * "+(1 + random.nextInt(9));
+                case 4 -> "POP C";
+                default -> "print \"  line \"";
+            };
+            lines.add(lineNumber+" "+line);
+        }
+        lines.add(lineCount+" END");
+        return lines;
+    }
+
+    /**
+     * Generates an expression with the given number of nested parentheses over the variables A, B and C.
+     * Divisions are always by a non zero constant.
+     * @param random picks the operators and constants
+     * @param depth is the nesting depth
+     * @return the expression
+     */
+    static String expression(Random random, int depth) {
+        String operand = switch (random.nextInt(4)) {
+            case 0 -> "A";
+            case 1 -> "B";
+            case 2 -> "C";
+            default -> String.valueOf(random.nextInt(100));
+        };
+        if (depth == 0)
+            return operand;
+        return switch (random.nextInt(4)) {
+            case 0 -> operand+" + ("+expression(random, depth - 1)+")";
+            case 1 -> operand+" - ("+expression(random, depth - 1)+")";
+            case 2 -> operand+" * ("+expression(random, depth - 1)+")";
+            default -> "("+expression(random, depth - 1)+") / "+(1 + random.nextInt(9));
+        };
+    }
+}
@@ -0,0 +1,138 @@
+package sil.benchmarks;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load test of the SILSessionRunner, driving the sessions in process the way a socket server would. It opens many
+ * interactive sessions of an echo program that all wait for input, reports the heap taken by an idle session and
+ * the number of live threads, then measures the latency from sending a line to receiving the answer:
+ * one request at a time on random sessions, and a burst of one request to every session at once.
+ * java -cp benchmarks.jar sil.benchmarks.SessionLoadTest [SESSIONS] [REQUESTS]
+ * Run it on a Java version with virtual threads, with -Djdk.virtualThreadScheduler.parallelism to size the carrier
+ * pool, otherwise every session takes a platform thread.
+ */
+public final class SessionLoadTest {
+
+    private static final List<String> ECHO_PROGRAM = List.of(
+            "10 INTEGER X",
+            "20 PRINTLN \"READY\"",
+            "30 INPUT X",
+            "40 PRINTLN X + 1",
+            "50 GOTO 30");
+
+    private SessionLoadTest() { }
+
+    public static void main(String[] args) throws Throwable {
+        int sessionCount = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        int requestCount = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+        Object program = SILRuntime.compileProgram("echo.sil", ECHO_PROGRAM);
+        Object runner = SILRuntime.newSessionRunner();
+        System.out.println("Java "+Runtime.version()+", "
+                +(SILRuntime.usesVirtualThreads(runner) ? "virtual threads" : "platform threads"));
+        try {
+            Object[] sessions = openIdleSessions(runner, program, sessionCount);
+            measureSequentialLatency(sessions, requestCount);
+            measureBurstLatency(sessions);
+        } finally {
+            SILRuntime.closeSessionRunner(runner);
+        }
+    }
+
+    private static Object[] openIdleSessions(Object runner, Object program, int sessionCount) throws Throwable {
+        long heapBefore = usedHeap();
+        int threadsBefore = ManagementFactory.getThreadMXBean().getThreadCount();
+        long startTime = System.nanoTime();
+        Object[] sessions = new Object[sessionCount];
+        for (int i = 0; i < sessionCount; i++) {
+            sessions[i] = SILRuntime.openSession(runner, program);
+        }
+        // a session prints READY once it waits for its first input
+        for (Object session: sessions) {
+            SILRuntime.takeOutput(session);
+        }
+        System.out.printf("%d idle sessions opened in %.1f ms%n", sessionCount, (System.nanoTime() - startTime) / 1e6);
+        long heapAfter = usedHeap();
+        System.out.printf("Heap per idle session: %d bytes%n", (heapAfter - heapBefore) / sessionCount);
+        System.out.printf("Live threads: %d before, %d with the idle sessions%n", threadsBefore,
+                ManagementFactory.getThreadMXBean().getThreadCount());
+        return sessions;
+    }
+
+    private static void measureSequentialLatency(Object[] sessions, int requestCount) throws Throwable {
+        Random random = new Random(SILWorkloadGenerator.DEFAULT_SEED);
+        long[] latencies = new long[requestCount];
+        for (int i = 0; i < requestCount; i++) {
+            Object session = sessions[random.nextInt(sessions.length)];
+            long sendTime = System.nanoTime();
+            SILRuntime.send(session, String.valueOf(i));
+            SILRuntime.takeOutput(session);
+            latencies[i] = System.nanoTime() - sendTime;
+        }
+        report("Sequential requests", latencies);
+    }
+
+    // every session gets one request at once, a pool of receivers waits for the answers
+    private static void measureBurstLatency(Object[] sessions) throws Throwable {
+        long[] sendTimes = new long[sessions.length];
+        long[] latencies = new long[sessions.length];
+        int receiverCount = Runtime.getRuntime().availableProcessors();
+        ExecutorService receivers = Executors.newFixedThreadPool(receiverCount);
+        CountDownLatch received = new CountDownLatch(receiverCount);
+        for (int receiver = 0; receiver < receiverCount; receiver++) {
+            int firstSession = receiver;
+            receivers.execute(() -> {
+                try {
+                    for (int i = firstSession; i < sessions.length; i += receiverCount) {
+                        SILRuntime.takeOutput(sessions[i]);
+                        latencies[i] = System.nanoTime() - sendTimes[i];
+                    }
+                } catch (Throwable e) {
+                    e.printStackTrace();
+                } finally {
+                    received.countDown();
+                }
+            });
+        }
+        long startTime = System.nanoTime();
+        for (int i = 0; i < sessions.length; i++) {
+            sendTimes[i] = System.nanoTime();
+            SILRuntime.send(sessions[i], String.valueOf(i));
+        }
+        received.await();
+        receivers.shutdown();
+        receivers.awaitTermination(1, TimeUnit.MINUTES);
+        System.out.printf("Burst of %d requests answered in %.1f ms%n", sessions.length,
+                (System.nanoTime() - startTime) / 1e6);
+        report("Burst requests", latencies);
+    }
+
+    private static void report(String name, long[] latencies) {
+        long[] sorted = latencies.clone();
+        Arrays.sort(sorted);
+        System.out.printf("%s: p50 %.1f us, p90 %.1f us, p99 %.1f us, p99.9 %.1f us, max %.1f us%n", name,
+                percentile(sorted, 50) / 1e3, percentile(sorted, 90) / 1e3, percentile(sorted, 99) / 1e3,
+                percentile(sorted, 99.9) / 1e3, sorted[sorted.length - 1] / 1e3);
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
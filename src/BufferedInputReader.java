@@ -0,0 +1,131 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Byte oriented reader of the values consumed by INPUT instructions. Every INPUT reads one line of space
+ * separated integers, the digits are parsed in place from a large buffer, so reading a value creates no garbage.
+ * Lines and values are checked the same way Scanner.nextLine, String.split(" ") and Integer.parseInt did.
+ * Subclasses decide where the bytes come from. Programs running concurrently may share a reader,
+ * every line is read under the lock of the reader.
+ */
+public abstract class BufferedInputReader implements Closeable {
+
+    static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+    // more digits than this always overflow an int
+    private static final int MAX_DIGIT_COUNT = 10;
+
+    protected final byte[] buffer;
+    protected int position;
+    protected int limit;
+    private boolean endOfInput;
+    // a line ended by \r is followed by the \n of a \r\n pair
+    private boolean skipLineFeed;
+    // bytes of the token being parsed, only decoded into the message of an invalid value
+    private byte[] token = new byte[16];
+
+    protected BufferedInputReader(int bufferSize) {
+        buffer = new byte[bufferSize];
+    }
+
+    /**
+     * Opens the reader of an --input file, regular files are memory mapped and pipes or devices are streamed
+     * @param path is the input file
+     * @return the reader of the file
+     * @throws IOException when the file can not be opened
+     */
+    static BufferedInputReader open(Path path) throws IOException {
+        if (Files.isRegularFile(path))
+            return new MappedInputReader(path);
+        return new StreamInputReader(Files.newInputStream(path));
+    }
+
+    /**
+     * Refills the buffer with the next bytes of the input, position and limit are set accordingly
+     * @return false at the end of the input
+     */
+    protected abstract boolean fill();
+
+    private int nextByte() {
+        if (position == limit) {
+            if (endOfInput || !fill()) {
+                endOfInput = true;
+                return -1;
+            }
+        }
+        return buffer[position++] & 0xff;
+    }
+
+    /**
+     * Reads one line holding exactly as many integers as there are values to read
+     * @param lineNumber is the line number of the INPUT instruction, used in the error messages
+     * @param values receives the integers of the line
+     */
+    public synchronized void readValues(int lineNumber, int[] values) {
+        int character = nextByte();
+        if (skipLineFeed) {
+            skipLineFeed = false;
+            if (character == '\n')
+                character = nextByte();
+        }
+        if (character == -1)
+            throw new SILExecutionException("Line "+lineNumber+" missing input value");
+        int valueCount = 0;
+        // empty values are only counted once a value follows them, trailing spaces are ignored like split does
+        int pendingEmptyValues = 0;
+        String invalidValue = null;
+        int tokenLength = 0;
+        while (true) {
+            if (character == ' ' || character == '\n' || character == '\r' || character == -1) {
+                if (tokenLength == 0) {
+                    pendingEmptyValues++;
+                } else {
+                    if (pendingEmptyValues > 0 && invalidValue == null && valueCount < values.length)
+                        invalidValue = "";
+                    valueCount += pendingEmptyValues;
+                    pendingEmptyValues = 0;
+                    if (valueCount < values.length) {
+                        long value = parseValue(tokenLength);
+                        if (value == Long.MIN_VALUE && invalidValue == null)
+                            invalidValue = new String(token, 0, tokenLength, Charset.defaultCharset());
+                        values[valueCount] = (int) value;
+                    }
+                    valueCount++;
+                    tokenLength = 0;
+                }
+                if (character != ' ')
+                    break;
+            } else {
+                if (tokenLength == token.length)
+                    token = Arrays.copyOf(token, tokenLength * 2);
+                token[tokenLength++] = (byte) character;
+            }
+            character = nextByte();
+        }
+        skipLineFeed = character == '\r';
+        if (valueCount != values.length)
+            throw new SILExecutionException("Line "+lineNumber+" missing input value");
+        if (invalidValue != null)
+            throw new SILExecutionException("For input string: \""+invalidValue+"\"");
+    }
+
+    // returns Long.MIN_VALUE when the token is not an int, like Integer.parseInt it accepts a leading + or -
+    private long parseValue(int tokenLength) {
+        int digitStart = token[0] == '-' || token[0] == '+' ? 1 : 0;
+        if (digitStart == tokenLength || tokenLength - digitStart > MAX_DIGIT_COUNT)
+            return Long.MIN_VALUE;
+        long value = 0;
+        for (int i = digitStart; i < tokenLength; i++) {
+            int digit = token[i] - '0';
+            if (digit < 0 || digit > 9)
+                return Long.MIN_VALUE;
+            value = value * 10 + digit;
+        }
+        if (token[0] == '-')
+            value = -value;
+        return value < Integer.MIN_VALUE || value > Integer.MAX_VALUE ? Long.MIN_VALUE : value;
+    }
+}
\ No newline at end of file
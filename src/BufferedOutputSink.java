@@ -0,0 +1,99 @@
+import java.nio.charset.Charset;
+
+/**
+ * Byte oriented output sink that collects the printed values in a large buffer.
+ * Integers are encoded digit by digit straight into the buffer, so printing a value creates no garbage.
+ * Subclasses decide what happens to the buffer once it is full or flushed.
+ */
+public abstract class BufferedOutputSink implements OutputSink {
+
+    static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes();
+    private static final byte[] MIN_VALUE = String.valueOf(Integer.MIN_VALUE).getBytes();
+
+    protected byte[] buffer;
+    protected int position;
+
+    protected BufferedOutputSink(int bufferSize) {
+        buffer = new byte[bufferSize];
+    }
+
+    /**
+     * Makes room in the buffer, either by writing it out or by growing it
+     * @param requiredSpace is the number of bytes that must fit into the buffer afterwards
+     */
+    protected abstract void drain(int requiredSpace);
+
+    @Override
+    public void print(String text) {
+        // same as PrintStream, for example for the message of an EmptyStackException
+        if (text == null)
+            text = "null";
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            if (text.charAt(i) >= 0x80) {
+                // text that is not plain ASCII is encoded the same way as System.out would
+                write(text.getBytes(Charset.defaultCharset()));
+                return;
+            }
+        }
+        if (buffer.length - position < length)
+            drain(length);
+        if (buffer.length - position < length) {
+            write(text.getBytes(Charset.defaultCharset()));
+            return;
+        }
+        for (int i = 0; i < length; i++) {
+            buffer[position++] = (byte) text.charAt(i);
+        }
+    }
+
+    @Override
+    public void print(int value) {
+        if (buffer.length - position < MIN_VALUE.length)
+            drain(MIN_VALUE.length);
+        if (value == Integer.MIN_VALUE) {
+            write(MIN_VALUE);
+            return;
+        }
+        if (value < 0) {
+            buffer[position++] = '-';
+            value = -value;
+        }
+        int digitCount = 1;
+        for (int remainder = value / 10; remainder != 0; remainder /= 10) {
+            digitCount++;
+        }
+        int digitPosition = position + digitCount;
+        position = digitPosition;
+        do {
+            buffer[--digitPosition] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+    }
+
+    @Override
+    public void println(String text) {
+        print(text);
+        write(LINE_SEPARATOR);
+    }
+
+    @Override
+    public void println(int value) {
+        print(value);
+        write(LINE_SEPARATOR);
+    }
+
+    @Override
+    public void write(byte[] bytes) {
+        int offset = 0;
+        while (offset < bytes.length) {
+            if (position == buffer.length)
+                drain(bytes.length - offset);
+            int length = Math.min(bytes.length - offset, buffer.length - position);
+            System.arraycopy(bytes, offset, buffer, position, length);
+            position += length;
+            offset += length;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,46 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Read only character view over the bytes of a buffer, every byte is one ISO-8859-1 character.
+ * It lets the SILCompiler lex the ASCII source of a mapped file without decoding it into Strings first.
+ */
+public class ByteSequence implements CharSequence {
+
+    private final ByteBuffer buffer;
+    private final int offset;
+    private final int length;
+
+    /**
+     * @param buffer holds the bytes, its position and limit are ignored
+     * @param offset is the index of the first byte of the sequence
+     * @param length is the number of bytes of the sequence
+     */
+    ByteSequence(ByteBuffer buffer, int offset, int length) {
+        this.buffer = buffer;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return (char) (buffer.get(offset + index) & 0xff);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        byte[] bytes = new byte[end - start];
+        buffer.get(offset + start, bytes);
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+
+    @Override
+    public String toString() {
+        return subSequence(0, length).toString();
+    }
+}
\ No newline at end of file
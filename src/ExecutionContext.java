@@ -0,0 +1,545 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.EmptyStackException;
+
+/**
+ * The state of one run of a SIL program: its variables, the operational and sub routine stacks, the input and the
+ * output. A context runs one program at a time and can be reset and reused for the next run, of the same or of
+ * another program, so contexts can be pooled. The interpreter lives here, programs translated by the
+ * SILJitCompiler call back into the context for their stack, input and output.
+ */
+public class ExecutionContext {
+
+    // returned by an instruction that stops the program
+    private static final int HALT = Integer.MAX_VALUE;
+
+    private OutputSink output;
+    private BufferedInputReader input;
+
+    // Holds the index of the instruction to be resumed after control is returned from a sub routine
+    private int[] subRoutineStack = new int[16];
+    private int subRoutineStackSize;
+    // Simple integer stack to perform PUSH & POP integer operations to be supported by SIL Parser,
+    // expressions are evaluated on top of it as well
+    private final IntStack operationalStack = new IntStack();
+
+    // program of the last run, its variable frame and subroutine cache are reused by the next run of it
+    private SILProgram program;
+    private SymbolTable symbolTable;
+    private VariableFrame variables;
+    // summaries of the pure subroutines by their first instruction, null unless the program runs with --memoize
+    private SILSubroutineAnalyzer.Subroutine[] subroutines;
+    // results of the pure subroutines, kept across the runs of the same program
+    private SubroutineCache subroutineCache;
+    // values read by the pure subroutine of every sub routine stack entry, null for the calls not to be cached
+    private int[][] pendingReadValues;
+    // subroutine of every sub routine stack entry with pending read values
+    private int[] pendingTargets;
+    // only set while a program runs with --profile
+    private SILProfiler profiler;
+    // file the checkpoints of the next run are written to, null when the run takes no checkpoints
+    private Path checkpointFile;
+    // number of instructions between two checkpoints, 0 when checkpoints are only taken at a line
+    private long checkpointInterval;
+    // line number of the instruction a checkpoint is taken before every time it runs, null for none
+    private Integer checkpointLine;
+    // fingerprint of the program the checkpoints are taken from, computed with the first checkpoint
+    private long checkpointFingerprint;
+
+    /**
+     * Creates a context without input and output, reset must be called before it runs a program
+     */
+    public ExecutionContext() { }
+
+    /**
+     * @param output receives everything the program prints, including its error messages
+     * @param input provides the values read by INPUT instructions
+     */
+    public ExecutionContext(OutputSink output, BufferedInputReader input) {
+        this.output = output;
+        this.input = input;
+    }
+
+    /**
+     * Prepares the context for another run
+     * @param output receives everything the next program prints
+     * @param input provides the values read by the next program
+     */
+    public void reset(OutputSink output, BufferedInputReader input) {
+        this.output = output;
+        this.input = input;
+        profiler = null;
+        checkpointFile = null;
+    }
+
+    // the next run records its execution profile
+    void setProfiler(SILProfiler profiler) {
+        this.profiler = profiler;
+    }
+
+    /**
+     * Makes the next run write checkpoints, a checkpoint replaces the previous one in the file
+     * @param file is the checkpoint file
+     * @param interval is the number of instructions run between two checkpoints, 0 for none
+     * @param lineNumber is the line a checkpoint is taken before every time it runs, null for none
+     */
+    void setCheckpoints(Path file, long interval, Integer lineNumber) {
+        this.checkpointFile = file;
+        this.checkpointInterval = interval;
+        this.checkpointLine = lineNumber;
+    }
+
+    /**
+     * Runs a program from its first line. Errors stop the program and are printed to the output,
+     * the output is flushed once the program stops.
+     * @param program is the compiled program
+     */
+    public void execute(SILProgram program) {
+        run(program, null);
+    }
+
+    /**
+     * Runs a program from the state of a checkpoint taken from the same program
+     * @param program is the compiled program
+     * @param checkpoint holds the variables, the stacks and the next instruction
+     * @throws SILExecutionException when the checkpoint was taken from another program
+     */
+    public void resume(SILProgram program, SILCheckpoint checkpoint) {
+        if (checkpoint.fingerprint != SILCheckpoint.fingerprintOf(program)
+                || checkpoint.values.length != program.symbolTable.size())
+            throw new SILExecutionException("The checkpoint was not taken from "+program.getName());
+        run(program, checkpoint);
+    }
+
+    private void run(SILProgram program, SILCheckpoint checkpoint) {
+        // every run starts from undeclared variables and empty stacks or from a checkpoint
+        if (this.program != program) {
+            this.program = program;
+            symbolTable = program.symbolTable;
+            variables = new VariableFrame(symbolTable);
+            subroutines = program.subroutines;
+            subroutineCache = subroutines == null ? null : new SubroutineCache(program.subroutineCacheSize);
+            pendingReadValues = subroutines == null ? null : new int[subRoutineStack.length][];
+            pendingTargets = subroutines == null ? null : new int[subRoutineStack.length];
+            checkpointFingerprint = 0;
+        } else {
+            variables.clear();
+        }
+        operationalStack.clear();
+        subRoutineStackSize = 0;
+        int programCounter = 0;
+        if (checkpoint != null) {
+            restore(checkpoint);
+            programCounter = checkpoint.programCounter;
+        }
+        try {
+            // the bytecode of a program can only start from its first line
+            if (program.jitProgram != null && profiler == null && checkpointFile == null && checkpoint == null)
+                program.jitProgram.run(this);
+            else
+                executeInstructions(program.instructions, programCounter);
+        } catch (SILExecutionException | UnsupportedOperationException e) {
+            output.println(e.getMessage());
+        } finally {
+            // END, errors and the end of the program all return here, so the output is always complete
+            output.flush();
+        }
+    }
+
+    /**
+     * Executes the compiled program with an explicit program counter. Jumps only assign the program counter
+     * and sub routine calls keep their return address on the subRoutineStack, so loops of any length
+     * run without growing the Java call stack.
+     */
+    private void executeInstructions(Instruction[] instructions, int programCounter) {
+        if (profiler != null) {
+            executeProfiledInstructions(instructions, programCounter);
+            return;
+        }
+        if (checkpointFile != null) {
+            executeCheckpointedInstructions(instructions, programCounter);
+            return;
+        }
+        while (programCounter < instructions.length) {
+            programCounter = executeInstruction(instructions[programCounter], programCounter + 1);
+        }
+    }
+
+    // same as executeInstructions, kept apart so that running without --profile pays nothing for the profiler
+    private void executeProfiledInstructions(Instruction[] instructions, int programCounter) {
+        while (programCounter < instructions.length) {
+            Instruction instruction = instructions[programCounter];
+            long startTime = System.nanoTime();
+            int nextIndex = executeInstruction(instruction, programCounter + 1);
+            profiler.recordInstruction(programCounter, System.nanoTime() - startTime, subRoutineStackSize,
+                    operationalStack.size());
+            // a call served from the subroutine cache continues after the GOSUB, the target is the one of the line
+            if (instruction.opCode == OpCode.GOSUB)
+                profiler.recordGoSub(instruction.jumpTarget);
+            programCounter = nextIndex;
+        }
+    }
+
+    // same as executeInstructions, taking a checkpoint before the chosen line and every checkpointInterval instructions
+    private void executeCheckpointedInstructions(Instruction[] instructions, int programCounter) {
+        int lineNumber = checkpointLine != null ? checkpointLine : 0;
+        long instructionsToCheckpoint = checkpointInterval > 0 ? checkpointInterval : Long.MAX_VALUE;
+        while (programCounter < instructions.length) {
+            Instruction instruction = instructions[programCounter];
+            if (checkpointLine != null && instruction.lineNumber == lineNumber)
+                writeCheckpoint(programCounter);
+            programCounter = executeInstruction(instruction, programCounter + 1);
+            if (--instructionsToCheckpoint == 0) {
+                if (programCounter < instructions.length)
+                    writeCheckpoint(programCounter);
+                instructionsToCheckpoint = checkpointInterval;
+            }
+        }
+    }
+
+    /**
+     * Takes a snapshot of the state of the running program
+     * @param programCounter is the index of the next instruction
+     * @return the checkpoint
+     */
+    SILCheckpoint checkpoint(int programCounter) {
+        if (checkpointFingerprint == 0)
+            checkpointFingerprint = SILCheckpoint.fingerprintOf(program);
+        return new SILCheckpoint(checkpointFingerprint, programCounter, variables.values.clone(),
+                variables.declaredSlots(), variables.initializedSlots(), operationalStack.toArray(),
+                Arrays.copyOf(subRoutineStack, subRoutineStackSize));
+    }
+
+    private void writeCheckpoint(int programCounter) {
+        // everything printed before the checkpoint must not be lost when the program is resumed from it
+        output.flush();
+        try {
+            checkpoint(programCounter).write(checkpointFile);
+        } catch (IOException e) {
+            System.err.println("Checkpoint could not be written: "+e);
+        }
+    }
+
+    private void restore(SILCheckpoint checkpoint) {
+        variables.restore(checkpoint.values, checkpoint.declared, checkpoint.initialized);
+        operationalStack.restore(checkpoint.operationalStack);
+        if (checkpoint.subRoutineStack.length > subRoutineStack.length)
+            subRoutineStack = new int[checkpoint.subRoutineStack.length];
+        System.arraycopy(checkpoint.subRoutineStack, 0, subRoutineStack, 0, checkpoint.subRoutineStack.length);
+        subRoutineStackSize = checkpoint.subRoutineStack.length;
+        if (pendingReadValues != null) {
+            // the calls running when the checkpoint was taken return without caching their results
+            pendingReadValues = new int[subRoutineStack.length][];
+            pendingTargets = new int[subRoutineStack.length];
+        }
+    }
+
+    /**
+     * The function dispatches a compiled instruction based on its op code
+     * @param instruction is the instruction to be executed
+     * @param nextIndex is the index of the instruction following the executed one
+     * @return the index of the next instruction to be executed
+     */
+    private int executeInstruction(Instruction instruction, int nextIndex) {
+        switch (instruction.opCode) {
+            case INTEGER -> executeDeclarationInstruction(instruction);
+            case INPUT -> executeInputInstruction(instruction);
+            case LET -> executeInitializationInstruction(instruction);
+            case PUSH -> executePushInstruction(instruction);
+            case POP -> executePopInstruction(instruction);
+            case IF -> {
+                return executeConditionalInstruction(instruction, nextIndex);
+            }
+            case GOTO -> {
+                return instruction.jumpTarget;
+            }
+            case GOSUB -> {
+                return executeGoSubInstruction(instruction, nextIndex);
+            }
+            case PRINT, PRINTLN -> executePrintInstruction(instruction);
+            case RET -> {
+                return executeReturnInstruction(instruction);
+            }
+            case END -> {
+                return HALT;
+            }
+            case ERROR -> fail(instruction.text);
+            case BRANCH -> {
+                return executeBranchInstruction(instruction, nextIndex);
+            }
+            case INCREMENT -> executeIncrementInstruction(instruction);
+            case MOVE -> {
+                return executeMoveInstruction(instruction);
+            }
+            case PRINT_CONCAT -> {
+                return executePrintConcatInstruction(instruction);
+            }
+            default -> output.println("Syntax error occurred while parsing");
+        }
+        return nextIndex;
+    }
+
+    /**
+     * This function executes declaration instructions and creates variables for the encountered variable declarations
+     * @param instruction compiled declaration instruction
+     */
+    private void executeDeclarationInstruction(Instruction instruction) {
+        for (int slot: instruction.variableSlots) {
+            variables.declare(slot);
+        }
+    }
+
+    /**
+     * This function helps to retrieve console input from the user.
+     * @param instruction compiled input instruction
+     */
+    private void executeInputInstruction(Instruction instruction) {
+        int lineNumber = instruction.lineNumber;
+        int[] instructionVariables = instruction.variableSlots;
+        for (int slot: instructionVariables) {
+            if (!instruction.declarationsVerified && !variables.isDeclared(slot)) {
+                fail(symbolTable.nameOf(slot)+" variable not declared at "+lineNumber);
+            }
+        }
+        // the input variables were successfully declared by this time
+        int[] inputs = readInputValues(lineNumber, instructionVariables.length);
+        for (int i = 0; i < instructionVariables.length; i++) {
+            variables.assign(instructionVariables[i], inputs[i]);
+        }
+    }
+
+    /**
+     * Reads one line of input holding the given number of space separated integers
+     * @param lineNumber line number of the input instruction
+     * @param valueCount number of values expected on the line
+     * @return the values read from the input
+     */
+    int[] readInputValues(int lineNumber, int valueCount) {
+        // whatever was printed as a prompt must be visible before waiting for the user
+        output.flush();
+        int[] values = new int[valueCount];
+        input.readValues(lineNumber, values);
+        return values;
+    }
+
+    /**
+     * This part of code handles the instructions that deal with initialization i.e: which start with LET
+     * @param instruction compiled initialization instruction
+     */
+    private void executeInitializationInstruction(Instruction instruction) {
+        int variableBeingAssigned = instruction.variableSlots[0];
+        if (!instruction.declarationsVerified && !variables.isDeclared(variableBeingAssigned)) {
+            fail(symbolTable.nameOf(variableBeingAssigned)+" variable not declared at "
+                    +instruction.lineNumber);
+        }
+        variables.assign(variableBeingAssigned, instruction.expression.evaluate(variables, operationalStack));
+    }
+
+    /**
+     * Push the expression result on to the top of the operational stack
+     * @param instruction compiled push instruction
+     */
+    private void executePushInstruction(Instruction instruction) {
+        operationalStack.push(instruction.expression.evaluate(variables, operationalStack));
+    }
+
+    /**
+     * Pop the top of the stack and store it into the variable
+     * @param instruction compiled pop instruction
+     */
+    private void executePopInstruction(Instruction instruction) {
+        int variable = instruction.variableSlots[0];
+        if (instruction.declarationsVerified || variables.isDeclared(variable)) {
+            variables.assign(variable, popOperand());
+        } else {
+            fail(symbolTable.nameOf(variable)+" not declared at line "+instruction.lineNumber);
+        }
+    }
+
+    private int executeConditionalInstruction(Instruction instruction, int nextIndex) {
+        if (FileParser.computeExpressionResult(
+                instruction.relationalOperator,
+                instruction.expression.evaluate(variables, operationalStack),
+                instruction.rightExpression.evaluate(variables, operationalStack)
+        ) && instruction.thenInstruction != null) {
+            return executeInstruction(instruction.thenInstruction, nextIndex);
+        }
+        return nextIndex;
+    }
+
+    private int executeGoSubInstruction(Instruction instruction, int nextIndex) {
+        int target = instruction.jumpTarget;
+        int[] readValues = null;
+        if (subroutines != null && target < subroutines.length && subroutines[target] != null) {
+            SILSubroutineAnalyzer.Subroutine subroutine = subroutines[target];
+            readValues = readSubroutineValues(subroutine);
+            int[] writeValues = readValues == null ? null : subroutineCache.lookup(target, readValues);
+            if (writeValues != null) {
+                // the subroutine already returned for the same values, its writes are replayed
+                for (int i = 0; i < writeValues.length; i++) {
+                    variables.assign(subroutine.writeSlots[i], writeValues[i]);
+                }
+                return nextIndex;
+            }
+        }
+        // the instruction following the GOSUB line is resumed once the sub routine returns
+        if (subRoutineStackSize == subRoutineStack.length) {
+            subRoutineStack = Arrays.copyOf(subRoutineStack, subRoutineStackSize * 2);
+            if (pendingReadValues != null) {
+                pendingReadValues = Arrays.copyOf(pendingReadValues, subRoutineStackSize * 2);
+                pendingTargets = Arrays.copyOf(pendingTargets, subRoutineStackSize * 2);
+            }
+        }
+        if (pendingReadValues != null) {
+            pendingReadValues[subRoutineStackSize] = readValues;
+            pendingTargets[subRoutineStackSize] = target;
+        }
+        subRoutineStack[subRoutineStackSize++] = nextIndex;
+        return target;
+    }
+
+    /**
+     * Collects the values a call of a pure subroutine is cached on
+     * @return the values of the variables the subroutine reads, null when one of its variables is not declared
+     * and the call has to run to report the error
+     */
+    private int[] readSubroutineValues(SILSubroutineAnalyzer.Subroutine subroutine) {
+        for (int slot: subroutine.writeSlots) {
+            if (!variables.isDeclared(slot))
+                return null;
+        }
+        int[] readValues = new int[subroutine.readSlots.length];
+        for (int i = 0; i < readValues.length; i++) {
+            int slot = subroutine.readSlots[i];
+            if (!variables.isDeclared(slot))
+                return null;
+            readValues[i] = variables.values[slot];
+        }
+        return readValues;
+    }
+
+    private int executeReturnInstruction(Instruction instruction) {
+        if (subRoutineStackSize == 0) {
+            fail("RET without GOSUB at "+instruction.lineNumber);
+        }
+        int returnIndex = subRoutineStack[--subRoutineStackSize];
+        if (pendingReadValues != null && pendingReadValues[subRoutineStackSize] != null) {
+            int target = pendingTargets[subRoutineStackSize];
+            int[] writeSlots = subroutines[target].writeSlots;
+            int[] writeValues = new int[writeSlots.length];
+            for (int i = 0; i < writeValues.length; i++) {
+                writeValues[i] = variables.values[writeSlots[i]];
+            }
+            subroutineCache.store(target, pendingReadValues[subRoutineStackSize], writeValues);
+            pendingReadValues[subRoutineStackSize] = null;
+        }
+        return returnIndex;
+    }
+
+    // the results of the pure subroutines, null unless the program runs with --memoize
+    public SubroutineCache getSubroutineCache() {
+        return subroutineCache;
+    }
+
+    /**
+     * The function executes the print statements
+     * @param instruction is the compiled print instruction
+     */
+    private void executePrintInstruction(Instruction instruction) {
+        if (instruction.text != null) {
+            if (instruction.opCode == OpCode.PRINT)
+                print(instruction.text);
+            else
+                println(instruction.text);
+        } else {
+            int expressionResult = instruction.expression.evaluate(variables, operationalStack);
+            if (instruction.opCode == OpCode.PRINT)
+                print(expressionResult);
+            else
+                println(expressionResult);
+        }
+    }
+
+    // The functions below execute the superinstructions created by the SILFuser
+
+    private int executeBranchInstruction(Instruction instruction, int nextIndex) {
+        int[] slots = instruction.variableSlots;
+        int leftOperand;
+        int rightOperand;
+        if (instruction.declarationsVerified) {
+            leftOperand = variables.values[slots[0]];
+            rightOperand = slots.length == 2 ? variables.values[slots[1]] : instruction.constant;
+        } else {
+            leftOperand = Expression.load(variables, slots[0]);
+            rightOperand = slots.length == 2 ? Expression.load(variables, slots[1]) : instruction.constant;
+        }
+        return FileParser.computeExpressionResult(instruction.relationalOperator, leftOperand, rightOperand)
+                ? instruction.jumpTarget : nextIndex;
+    }
+
+    private void executeIncrementInstruction(Instruction instruction) {
+        int slot = instruction.variableSlots[0];
+        if (!instruction.declarationsVerified && !variables.isDeclared(slot))
+            fail(symbolTable.nameOf(slot)+" variable not declared at "+instruction.lineNumber);
+        variables.assign(slot, variables.values[slot] + instruction.constant);
+    }
+
+    private int executeMoveInstruction(Instruction instruction) {
+        int value = instruction.expression.evaluate(variables, operationalStack);
+        int slot = instruction.variableSlots[0];
+        if (!instruction.declarationsVerified && !variables.isDeclared(slot))
+            fail(instruction.text);
+        variables.assign(slot, value);
+        return instruction.jumpTarget;
+    }
+
+    private int executePrintConcatInstruction(Instruction instruction) {
+        if (instruction.expression == null) {
+            println(instruction.text);
+        } else {
+            print(instruction.text);
+            println(instruction.expression.evaluate(variables, operationalStack));
+        }
+        return instruction.jumpTarget;
+    }
+
+    // The functions below are shared by the interpreter and the code generated by the SILJitCompiler
+
+    IntStack getOperationalStack() {
+        return operationalStack;
+    }
+
+    int popOperand() {
+        try {
+            return operationalStack.pop();
+        } catch (EmptyStackException e) {
+            throw new SILExecutionException(e.getMessage());
+        }
+    }
+
+    void print(String text) {
+        output.print(text);
+    }
+
+    void print(int value) {
+        output.print(value);
+    }
+
+    void println(String text) {
+        output.println(text);
+    }
+
+    void println(int value) {
+        output.println(value);
+    }
+
+    int undeclaredVariable(String variableName) {
+        throw new SILExecutionException(variableName+" variable not declared");
+    }
+
+    // reports an error that stops the program
+    void fail(String message) {
+        throw new SILExecutionException(message);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,50 @@
+/**
+ * Arithmetic expression compiled into postfix code. The code is a flat int array where CONSTANT and VARIABLE
+ * are followed by their operand and the operators are stored as their character code.
+ * Evaluation runs against the variable slots on a caller supplied IntStack and allocates nothing.
+ */
+public class Expression {
+
+    static final int CONSTANT = 0;
+    static final int VARIABLE = 1;
+
+    final int[] code;
+    // set by the SILValidator when every variable of the expression is declared on all the paths reaching it
+    boolean declarationsVerified;
+
+    Expression(int[] code) {
+        this.code = code;
+    }
+
+    /**
+     * Evaluates the expression
+     * @param variables is the variable frame of the running program
+     * @param stack is the operand stack, it is left as it was found
+     * @return the value of the expression
+     */
+    int evaluate(VariableFrame variables, IntStack stack) {
+        int[] code = this.code;
+        // single operand expressions do not need the operand stack
+        if (code.length == 2)
+            return code[0] == CONSTANT ? code[1] : declarationsVerified ? variables.values[code[1]]
+                    : load(variables, code[1]);
+        for (int i = 0; i < code.length; i++) {
+            switch (code[i]) {
+                case CONSTANT -> stack.push(code[++i]);
+                case VARIABLE -> stack.push(declarationsVerified ? variables.values[code[++i]]
+                        : load(variables, code[++i]));
+                default -> {
+                    int rightOperand = stack.pop();
+                    stack.push(FileParser.applyOp((char) code[i], rightOperand, stack.pop()));
+                }
+            }
+        }
+        return stack.pop();
+    }
+
+    static int load(VariableFrame variables, int slot) {
+        if (!variables.isDeclared(slot))
+            throw new SILExecutionException(variables.nameOf(slot)+" variable not declared");
+        return variables.values[slot];
+    }
+}
@@ -0,0 +1,46 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Buffered output sink writing straight to a file channel, used when the output is redirected to a file.
+ */
+public class FileChannelOutputSink extends BufferedOutputSink implements AutoCloseable {
+
+    private final FileChannel channel;
+    private final ByteBuffer channelBuffer;
+
+    public FileChannelOutputSink(Path path) throws IOException {
+        super(DEFAULT_BUFFER_SIZE * 4);
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        channelBuffer = ByteBuffer.wrap(buffer);
+    }
+
+    @Override
+    protected void drain(int requiredSpace) {
+        flush();
+    }
+
+    @Override
+    public void flush() {
+        try {
+            channelBuffer.limit(position).position(0);
+            while (channelBuffer.hasRemaining()) {
+                channel.write(channelBuffer);
+            }
+            position = 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        channel.close();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,34 @@
+/**
+ * This class holds one pre-decoded SIL code line produced by the SILCompiler.
+ * Only the operand slots used by the op code are filled, the others are left empty.
+ */
+public class Instruction {
+    final OpCode opCode;
+    final int lineNumber;
+
+    // slots of the declared, input, assigned or popped variables
+    int[] variableSlots;
+    // LET, PUSH and PRINT expression or the left side of an IF condition
+    Expression expression;
+    // right side of an IF condition
+    Expression rightExpression;
+    char relationalOperator;
+    // instruction to be executed when the IF condition holds
+    Instruction thenInstruction;
+    // line number written in a GOTO or GOSUB instruction
+    int jumpLineNumber;
+    // index of the instruction a GOTO, GOSUB or BRANCH jumps to, resolved once all the lines are compiled,
+    // MOVE and PRINT_CONCAT continue there after the second instruction they replace
+    int jumpTarget;
+    // constant operand of a BRANCH or the amount added by an INCREMENT
+    int constant;
+    // literal to be printed or the error message of a line that could not be compiled
+    String text;
+    // set by the SILValidator when the variables in variableSlots are declared on every path reaching the line
+    boolean declarationsVerified;
+
+    Instruction(OpCode opCode, int lineNumber) {
+        this.opCode = opCode;
+        this.lineNumber = lineNumber;
+    }
+}
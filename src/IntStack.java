@@ -0,0 +1,66 @@
+import java.util.Arrays;
+import java.util.EmptyStackException;
+
+/**
+ * Growable stack of primitive integers. It backs the PUSH / POP operational stack and is also used as the
+ * operand stack while evaluating expressions, so neither boxes values nor allocates once it has grown.
+ */
+public class IntStack {
+
+    private int[] elements;
+    private int size;
+
+    public IntStack() {
+        this(16);
+    }
+
+    public IntStack(int initialCapacity) {
+        elements = new int[Math.max(initialCapacity, 1)];
+    }
+
+    public void push(int value) {
+        if (size == elements.length)
+            elements = Arrays.copyOf(elements, size * 2);
+        elements[size++] = value;
+    }
+
+    public int pop() {
+        if (size == 0)
+            throw new EmptyStackException();
+        return elements[--size];
+    }
+
+    public int peek() {
+        if (size == 0)
+            throw new EmptyStackException();
+        return elements[size - 1];
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // copies the elements from the bottom to the top of the stack
+    public int[] toArray() {
+        return Arrays.copyOf(elements, size);
+    }
+
+    /**
+     * Replaces the content of the stack
+     * @param values are the new elements from the bottom to the top of the stack
+     */
+    public void restore(int[] values) {
+        if (values.length > elements.length)
+            elements = new int[Math.max(values.length, elements.length * 2)];
+        System.arraycopy(values, 0, elements, 0, values.length);
+        size = values.length;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+}
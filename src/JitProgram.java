@@ -0,0 +1,10 @@
+/**
+ * A SIL program translated into JVM bytecode by the SILJitCompiler
+ */
+public interface JitProgram {
+    /**
+     * Runs the program from its first line
+     * @param runtime provides the operational stack, console input and output of the program
+     */
+    void run(ExecutionContext runtime);
+}
\ No newline at end of file
@@ -0,0 +1,210 @@
+import java.util.Arrays;
+
+/**
+ * The line numbers of a SIL file in file order, optionally with the beautified code of every line.
+ * Lines are stored in two parallel arrays, so a line costs 4 bytes for its number and 4 bytes for the reference
+ * to its code (with compressed references) plus up to the same again while the arrays grow, 13.4 bytes per line
+ * for 10M lines. A LinkedHashMap entry with its boxed Integer key and its table slot takes 69 bytes per line and a
+ * separate list of the line numbers 8 more, as measured by the LineTableBenchmark.
+ * Line numbers are looked up by binary search while they are ascending. Once a line number is lower than the one
+ * before it an open addressing index is kept as well, 16 bytes per line at most, and when the line numbers are dense
+ * a direct-mapped table of 4 bytes per line number in the range answers jump targets with a single array read.
+ * A line number added twice keeps the position of its first line and the code of its last line.
+ */
+public class LineTable {
+
+    // ascending line numbers use the direct-mapped table while their range is at most this many times their count
+    private static final int MAX_DIRECT_SPREAD = 2;
+
+    private int[] lineNumbers;
+    private String[] codeLines;
+    private int size;
+    private boolean ascending = true;
+    // open addressing table holding index + 1 of every line, only used once the line numbers are not ascending
+    private int[] lineIndexes;
+    // jump target of every line number from the first one to the last one, built on the first lookup
+    private int[] jumpTargets;
+
+    public LineTable() {
+        this(16);
+    }
+
+    public LineTable(int initialCapacity) {
+        lineNumbers = new int[Math.max(initialCapacity, 1)];
+        codeLines = new String[lineNumbers.length];
+    }
+
+    /**
+     * Adds a line, a line number that is already in the table keeps its index
+     * @param lineNumber is the line number
+     * @return the index of the line, size() - 1 for a new line
+     */
+    public int add(int lineNumber) {
+        jumpTargets = null;
+        if (size == 0 || (ascending && lineNumber > lineNumbers[size - 1]))
+            return append(lineNumber);
+        int index = indexOf(lineNumber);
+        if (index >= 0)
+            return index;
+        if (ascending) {
+            ascending = false;
+            buildLineIndexes(size + 1);
+        }
+        return append(lineNumber);
+    }
+
+    /**
+     * Adds a line with its code, the code of a line number that is already in the table is replaced
+     * @param lineNumber is the line number
+     * @param code is the beautified code of the line
+     * @return true when the line number was already in the table
+     */
+    public boolean put(int lineNumber, String code) {
+        int previousSize = size;
+        int index = add(lineNumber);
+        codeLines[index] = code;
+        return size == previousSize;
+    }
+
+    /**
+     * Replaces a range of lines of a table with ascending line numbers, the lines after the range move up or down
+     * @param start is the index of the first replaced line
+     * @param end is the index following the last replaced line
+     * @param newLineNumbers are the line numbers of the new lines, they keep the table ascending
+     * @param newCodeLines is the code of the new lines
+     * @param newLineCount is the number of new lines
+     */
+    public void replace(int start, int end, int[] newLineNumbers, String[] newCodeLines, int newLineCount) {
+        if (!ascending)
+            throw new IllegalStateException("Only ascending line numbers can be replaced");
+        jumpTargets = null;
+        int newSize = size - (end - start) + newLineCount;
+        if (newSize > lineNumbers.length) {
+            int capacity = Math.max(newSize, lineNumbers.length * 2);
+            lineNumbers = Arrays.copyOf(lineNumbers, capacity);
+            codeLines = Arrays.copyOf(codeLines, capacity);
+        }
+        System.arraycopy(lineNumbers, end, lineNumbers, start + newLineCount, size - end);
+        System.arraycopy(codeLines, end, codeLines, start + newLineCount, size - end);
+        System.arraycopy(newLineNumbers, 0, lineNumbers, start, newLineCount);
+        System.arraycopy(newCodeLines, 0, codeLines, start, newLineCount);
+        if (newSize < size)
+            Arrays.fill(codeLines, newSize, size, null);
+        size = newSize;
+    }
+
+    private int append(int lineNumber) {
+        if (size == lineNumbers.length) {
+            lineNumbers = Arrays.copyOf(lineNumbers, size * 2);
+            codeLines = Arrays.copyOf(codeLines, size * 2);
+        }
+        lineNumbers[size] = lineNumber;
+        if (lineIndexes != null)
+            insertLineIndex(lineNumber, size);
+        return size++;
+    }
+
+    /**
+     * Finds a line
+     * @param lineNumber is the line number
+     * @return the index of the line or -1 when no line has this number
+     */
+    public int indexOf(int lineNumber) {
+        if (ascending) {
+            int index = Arrays.binarySearch(lineNumbers, 0, size, lineNumber);
+            return index >= 0 ? index : -1;
+        }
+        int mask = lineIndexes.length - 1;
+        for (int slot = mix(lineNumber) & mask; lineIndexes[slot] != 0; slot = (slot + 1) & mask) {
+            if (lineNumbers[lineIndexes[slot] - 1] == lineNumber)
+                return lineIndexes[slot] - 1;
+        }
+        return -1;
+    }
+
+    /**
+     * Finds the line a GOTO or GOSUB continues at: the line with the number, or else the first line with a higher
+     * number in file order
+     * @param lineNumber is the line number written in the jump
+     * @return the index of the target line, size() when the jump leaves the program
+     */
+    public int jumpTargetOf(int lineNumber) {
+        if (size == 0)
+            return 0;
+        if (jumpTargets == null && ascending
+                && (long) lineNumbers[size - 1] - lineNumbers[0] < (long) size * MAX_DIRECT_SPREAD)
+            buildJumpTargets();
+        if (jumpTargets != null) {
+            if (lineNumber <= lineNumbers[0])
+                return 0;
+            if (lineNumber > lineNumbers[size - 1])
+                return size;
+            return jumpTargets[lineNumber - lineNumbers[0]];
+        }
+        int index = ascending ? Arrays.binarySearch(lineNumbers, 0, size, lineNumber) : indexOf(lineNumber);
+        if (ascending)
+            return index >= 0 ? index : -index - 1;
+        if (index >= 0)
+            return index;
+        for (int i = 0; i < size; i++) {
+            if (lineNumbers[i] >= lineNumber)
+                return i;
+        }
+        return size;
+    }
+
+    private void buildJumpTargets() {
+        int firstLineNumber = lineNumbers[0];
+        int[] targets = new int[lineNumbers[size - 1] - firstLineNumber + 1];
+        int index = 0;
+        for (int i = 0; i < targets.length; i++) {
+            if (lineNumbers[index] < firstLineNumber + i)
+                index++;
+            targets[i] = index;
+        }
+        jumpTargets = targets;
+    }
+
+    private void buildLineIndexes(int lineCount) {
+        // the table is kept at most half full so that probe sequences stay short
+        lineIndexes = new int[Integer.highestOneBit(Math.max(lineCount, 8) * 2 - 1) * 2];
+        for (int i = 0; i < size; i++) {
+            storeLineIndex(lineNumbers[i], i);
+        }
+    }
+
+    private void insertLineIndex(int lineNumber, int index) {
+        if ((index + 1) * 2 > lineIndexes.length)
+            buildLineIndexes(index + 1);
+        storeLineIndex(lineNumber, index);
+    }
+
+    private void storeLineIndex(int lineNumber, int index) {
+        int mask = lineIndexes.length - 1;
+        int slot = mix(lineNumber) & mask;
+        while (lineIndexes[slot] != 0)
+            slot = (slot + 1) & mask;
+        lineIndexes[slot] = index + 1;
+    }
+
+    private static int mix(int lineNumber) {
+        int hash = lineNumber * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int lineNumberAt(int index) {
+        return lineNumbers[index];
+    }
+
+    public String codeAt(int index) {
+        return codeLines[index];
+    }
+
+    public boolean isAscending() {
+        return ascending;
+    }
+}
\ No newline at end of file
@@ -1,15 +1,65 @@
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
 
 public class Main {
     public static void main(String[] args) {
-        // Parse each file given in the Command Line Arguments
-        for (String fileName: args) {
-            // retrieve the file from the device based on the file name given in the command line arguments
-            File silFile = new File(fileName);
-            // Create an instance of File Parser that supports SIL file parsing
-            FileParser silFileParser = new FileParser();
-            // Start SIL file parsing
-            silFileParser.parse(silFile);
+        // Options start with -- and apply to every file given in the Command Line Arguments
+        SILOptions options = SILOptions.parse(args);
+        // All the programs print into the same buffered sink, either the console or the --output file
+        FileChannelOutputSink fileOutput = null;
+        OutputSink output;
+        try {
+            output = options.outputFile == null ? new StreamOutputSink()
+                    : (fileOutput = new FileChannelOutputSink(Path.of(options.outputFile)));
+        } catch (IOException e) {
+            System.err.println("Error while opening the output file "+options.outputFile);
+            return;
+        }
+        // INPUT instructions read from the console unless an --input file is given
+        BufferedInputReader fileInput = null;
+        BufferedInputReader input;
+        try {
+            input = options.inputFile == null ? StreamInputReader.console()
+                    : (fileInput = BufferedInputReader.open(Path.of(options.inputFile)));
+        } catch (IOException e) {
+            System.err.println("Error while opening the input file "+options.inputFile);
+            return;
+        }
+        if (options.columnsFile != null) {
+            // Run every file once per record of the columns file
+            SILColumnarRunner.run(options, output);
+        } else if (options.watch) {
+            // Run the files again after every change until the process is stopped
+            SILWatcher.watch(options, output, input);
+        } else if (options.isBatch()) {
+            // Run the files concurrently, their outputs are still written in the order of the arguments
+            SILBatchRunner.run(options, output);
+        } else {
+            // Parse each file given in the Command Line Arguments
+            for (String fileName: options.fileNames) {
+                // retrieve the file from the device based on the file name given in the command line arguments
+                File silFile = new File(fileName);
+                // Create an instance of File Parser that supports SIL file parsing
+                FileParser silFileParser = new FileParser(options, output, input);
+                // Start SIL file parsing
+                silFileParser.parse(silFile);
+            }
+        }
+        output.flush();
+        if (fileOutput != null) {
+            try {
+                fileOutput.close();
+            } catch (IOException e) {
+                System.err.println("Error while closing the output file "+options.outputFile);
+            }
+        }
+        if (fileInput != null) {
+            try {
+                fileInput.close();
+            } catch (IOException e) {
+                System.err.println("Error while closing the input file "+options.inputFile);
+            }
         }
     }
 }
\ No newline at end of file
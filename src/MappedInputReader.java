@@ -0,0 +1,52 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Buffered input reader over a memory mapped file given with --input. The file is mapped in windows
+ * and copied into the buffer in bulk, so the values are read without going through a stream.
+ */
+public class MappedInputReader extends BufferedInputReader {
+
+    // a mapping can not be larger than Integer.MAX_VALUE bytes
+    private static final int MAX_WINDOW_SIZE = 1 << 30;
+
+    private final FileChannel channel;
+    private final long fileSize;
+    private long windowStart;
+    private MappedByteBuffer window;
+
+    public MappedInputReader(Path path) throws IOException {
+        super(DEFAULT_BUFFER_SIZE * 4);
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        fileSize = channel.size();
+    }
+
+    @Override
+    protected boolean fill() {
+        try {
+            if (window == null || !window.hasRemaining()) {
+                if (window != null)
+                    windowStart += window.capacity();
+                if (windowStart >= fileSize)
+                    return false;
+                window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart,
+                        Math.min(MAX_WINDOW_SIZE, fileSize - windowStart));
+            }
+            position = 0;
+            limit = Math.min(buffer.length, window.remaining());
+            window.get(buffer, 0, limit);
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,150 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Single pass loader for very large SIL files. The file is memory mapped in windows that end on a line boundary
+ * and every line is compiled straight from the mapped bytes, so the source is never held as a list of Strings
+ * or as a table of beautified lines. Only the instructions and the LineTable of the line numbers stay on the heap.
+ * The result is the same program SILFile builds with the SILFileBeautifier and the SILCompiler.
+ */
+public class MappedSILLoader {
+
+    // a mapping can not be larger than Integer.MAX_VALUE bytes, smaller windows also bound the address space used
+    private static final int MAX_WINDOW_SIZE = 1 << 30;
+
+    private final SymbolTable symbolTable;
+    private final SILCompiler compiler;
+    private final int maxWindowSize;
+    private Instruction[] instructions = new Instruction[1024];
+    private final LineTable lines = new LineTable(1024);
+
+    /**
+     * @param symbolTable receives the slots of all the variables used by the file
+     */
+    MappedSILLoader(SymbolTable symbolTable) {
+        this(symbolTable, MAX_WINDOW_SIZE);
+    }
+
+    /**
+     * @param symbolTable receives the slots of all the variables used by the file
+     * @param maxWindowSize is the largest number of bytes mapped at once, small windows test the window boundaries
+     */
+    MappedSILLoader(SymbolTable symbolTable, int maxWindowSize) {
+        this.symbolTable = symbolTable;
+        this.compiler = new SILCompiler(symbolTable);
+        this.maxWindowSize = maxWindowSize;
+    }
+
+    /**
+     * Maps and compiles a SIL file
+     * @param path is the SIL file
+     * @throws IOException when the file can not be read or holds a line longer than a mapping window
+     * @throws NumberFormatException when a line does not start with a valid line number
+     */
+    public void load(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            long position = 0;
+            while (position < fileSize) {
+                int windowSize = (int) Math.min(maxWindowSize, fileSize - position);
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, windowSize);
+                int windowEnd = windowSize;
+                if (position + windowSize < fileSize) {
+                    // the last partial line is mapped again at the start of the next window, the byte following a
+                    // carriage return at the end of the window is not mapped yet
+                    if (window.get(windowEnd - 1) != '\n') {
+                        windowEnd--;
+                        while (windowEnd > 0 && !endsLine(window, windowEnd - 1))
+                            windowEnd--;
+                    }
+                    if (windowEnd == 0)
+                        throw new IOException("Line longer than "+maxWindowSize+" bytes");
+                }
+                compileWindow(window, windowEnd);
+                position += windowEnd;
+            }
+        }
+        instructions = Arrays.copyOf(instructions, lines.size());
+        SILCompiler.resolveJumpTargets(instructions, lines);
+    }
+
+    private void compileWindow(ByteBuffer window, int windowEnd) {
+        ByteSequence source = new ByteSequence(window, 0, windowEnd);
+        int lineStart = 0;
+        while (lineStart < windowEnd) {
+            int lineEnd = lineStart;
+            boolean ascii = true;
+            byte character;
+            while (lineEnd < windowEnd && (character = window.get(lineEnd)) != '\n' && character != '\r') {
+                ascii &= character >= 0;
+                lineEnd++;
+            }
+            // a line ends with a line feed, a carriage return or both, like for the BufferedReader of the file
+            int nextLineStart = lineEnd + 1;
+            if (lineEnd < windowEnd && window.get(lineEnd) == '\r' && nextLineStart < windowEnd
+                    && window.get(nextLineStart) == '\n')
+                nextLineStart++;
+            // an empty line is not skipped, it has no line number like for the SILFileBeautifier
+            if (ascii) {
+                compileLine(source, lineStart, lineEnd);
+            } else {
+                // lines holding other characters are decoded the way FileReader decodes the whole file
+                byte[] bytes = new byte[lineEnd - lineStart];
+                window.get(lineStart, bytes);
+                String line = new String(bytes, Charset.defaultCharset());
+                compileLine(line, 0, line.length());
+            }
+            lineStart = nextLineStart;
+        }
+    }
+
+    /**
+     * Tells whether a line ends at a byte of a window. A carriage return only ends a line when the byte following it
+     * is in the window as well, the line feed of a CRLF line ending is never left to the next window.
+     * @param window holds the bytes
+     * @param index is the index of the byte, below the last index of the window
+     * @return true when the byte is the last one of a line
+     */
+    private static boolean endsLine(ByteBuffer window, int index) {
+        byte character = window.get(index);
+        return character == '\n' || character == '\r' && window.get(index + 1) != '\n';
+    }
+
+    /**
+     * Reads the line number of a line and compiles the code following it
+     * @param source holds the line
+     * @param start is the index of the first character of the line
+     * @param end is the index following the last character of the line
+     */
+    private void compileLine(CharSequence source, int start, int end) {
+        int codeStart = start;
+        while (codeStart < end && source.charAt(codeStart) != ' ')
+            codeStart++;
+        int lineNumber = Integer.parseInt(source, start, codeStart, 10);
+        while (codeStart < end && source.charAt(codeStart) == ' ')
+            codeStart++;
+        // a line number written twice keeps the position of its first line and the code of its last line
+        int index = lines.add(lineNumber);
+        if (index == instructions.length)
+            instructions = Arrays.copyOf(instructions, index * 2);
+        instructions[index] = compiler.compileCodeLine(lineNumber, source, codeStart, end);
+    }
+
+    public SymbolTable getSymbolTable() {
+        return symbolTable;
+    }
+
+    public Instruction[] getInstructions() {
+        return instructions;
+    }
+
+    public LineTable getLines() {
+        return lines;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,31 @@
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Output sink that keeps everything printed in memory, used to capture the output of a program.
+ */
+public class MemoryOutputSink extends BufferedOutputSink {
+
+    public MemoryOutputSink() {
+        super(1024);
+    }
+
+    @Override
+    protected void drain(int requiredSpace) {
+        buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + requiredSpace));
+    }
+
+    @Override
+    public void flush() {
+        // everything printed is already in memory
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, position);
+    }
+
+    @Override
+    public String toString() {
+        return new String(buffer, 0, position, Charset.defaultCharset());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,31 @@
+/**
+ * The kinds of instructions supported by the SIL language. Every compiled code line carries one of these
+ * so that the executor only needs to dispatch on the op code instead of re-reading the instruction word.
+ */
+public enum OpCode {
+    INTEGER,
+    INPUT,
+    LET,
+    PUSH,
+    POP,
+    IF,
+    GOTO,
+    GOSUB,
+    PRINT,
+    PRINTLN,
+    RET,
+    END,
+    // a line that could not be compiled, the stored message is reported once the line is executed
+    ERROR,
+    // an unknown instruction word
+    INVALID,
+    // The superinstructions below are only created by the SILFuser, they replace common sequences of instructions
+    // IF variable relational-operator variable-or-constant THEN GOTO
+    BRANCH,
+    // LET variable = variable + constant or variable - constant
+    INCREMENT,
+    // PUSH expression directly followed by POP variable
+    MOVE,
+    // PRINT literal directly followed by PRINTLN
+    PRINT_CONCAT
+}
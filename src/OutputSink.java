@@ -0,0 +1,20 @@
+/**
+ * Destination of everything a SIL program prints. Implementations are not thread safe,
+ * every running program writes to its own sink.
+ */
+public interface OutputSink {
+
+    void print(String text);
+
+    void print(int value);
+
+    void println(String text);
+
+    void println(int value);
+
+    // writes bytes that are already encoded, for example the captured output of another program
+    void write(byte[] bytes);
+
+    // writes out everything buffered so far
+    void flush();
+}
\ No newline at end of file
@@ -0,0 +1,91 @@
+import java.nio.charset.Charset;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Input of an interactive session: the lines sent to the session are queued and read by its INPUT instructions.
+ * A program waiting for a line parks on the queue before it takes the lock of the reader, so a program running on
+ * a virtual thread never pins its carrier thread while it waits. The buffer is small, an idle session only holds
+ * the queue and a few hundred bytes.
+ */
+public class QueueInputReader extends BufferedInputReader {
+
+    private static final int BUFFER_SIZE = 256;
+    // queued once the input of the session is closed
+    private static final byte[] END_OF_INPUT = new byte[0];
+
+    private final LinkedBlockingQueue<byte[]> lines = new LinkedBlockingQueue<>();
+    // line being copied into the buffer, only used by the thread of the program
+    private byte[] line;
+    private int lineOffset;
+
+    public QueueInputReader() {
+        super(BUFFER_SIZE);
+    }
+
+    /**
+     * Queues a line for the INPUT instructions of the session, it never blocks. A line separator ending the text, a
+     * lone carriage return included, is dropped and one inside it ends a line, so that every queued line ends with
+     * a single line feed.
+     * @param text is the line, a line separator ending it is ignored
+     */
+    public void send(String text) {
+        int end = text.length();
+        if (end > 0 && text.charAt(end - 1) == '\n')
+            end--;
+        if (end > 0 && text.charAt(end - 1) == '\r')
+            end--;
+        String normalized = text.substring(0, end).replace("\r\n", "\n").replace('\r', '\n');
+        lines.add((normalized+"\n").getBytes(Charset.defaultCharset()));
+    }
+
+    @Override
+    public void readValues(int lineNumber, int[] values) {
+        awaitLine();
+        super.readValues(lineNumber, values);
+    }
+
+    // waits outside of the lock of readValues until a complete line is there, fill then never waits
+    private void awaitLine() {
+        if (line != null || hasLineFeed())
+            return;
+        try {
+            line = lines.take();
+        } catch (InterruptedException e) {
+            // the session is being closed, the program stops like at the end of its input
+            Thread.currentThread().interrupt();
+            line = END_OF_INPUT;
+        }
+        lineOffset = 0;
+    }
+
+    // whether the rest of the buffer holds the end of a line, bytes left without one need the next queued line
+    private boolean hasLineFeed() {
+        for (int i = position; i < limit; i++) {
+            if (buffer[i] == '\n')
+                return true;
+        }
+        return false;
+    }
+
+    @Override
+    protected boolean fill() {
+        if (line == null)
+            line = lines.poll();
+        if (line == null || line == END_OF_INPUT)
+            return false;
+        int byteCount = Math.min(buffer.length, line.length - lineOffset);
+        System.arraycopy(line, lineOffset, buffer, 0, byteCount);
+        position = 0;
+        limit = byteCount;
+        lineOffset += byteCount;
+        if (lineOffset == line.length)
+            line = null;
+        return true;
+    }
+
+    // ends the input of the session, an INPUT instruction waiting for a line fails with a missing input value
+    @Override
+    public void close() {
+        lines.add(END_OF_INPUT);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,44 @@
+import java.util.Arrays;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Output of an interactive session: everything printed since the last flush is delivered as one message on a
+ * queue the client of the session takes it from. A program flushes its output before every INPUT and when it stops,
+ * so a message holds the whole answer to a line sent to the session.
+ */
+public class QueueOutputSink extends BufferedOutputSink {
+
+    private static final int BUFFER_SIZE = 256;
+
+    private final LinkedBlockingQueue<byte[]> messages = new LinkedBlockingQueue<>();
+
+    public QueueOutputSink() {
+        super(BUFFER_SIZE);
+    }
+
+    @Override
+    protected void drain(int requiredSpace) {
+        flush();
+        if (buffer.length < requiredSpace)
+            buffer = new byte[requiredSpace];
+    }
+
+    @Override
+    public void flush() {
+        if (position > 0) {
+            messages.add(Arrays.copyOf(buffer, position));
+            position = 0;
+        }
+    }
+
+    // waits for the next message
+    byte[] take() throws InterruptedException {
+        return messages.take();
+    }
+
+    // waits for the next message at most for the timeout, null when there is none
+    byte[] poll(long timeout, TimeUnit unit) throws InterruptedException {
+        return messages.poll(timeout, unit);
+    }
+}
\ No newline at end of file
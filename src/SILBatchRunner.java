@@ -0,0 +1,111 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs several SIL files concurrently. Every file is executed by its own FileParser that captures its output
+ * in a MemoryOutputSink,
+ * the captured outputs are written in the order the files were given and followed by a summary
+ * with the wall time of every file. The files can not share the console input, the order in which they would read
+ * it depends on the scheduling of the threads: the INPUT instructions of a file read the file named like it with
+ * .input appended when there is one and find no input otherwise.
+ */
+public class SILBatchRunner {
+
+    // appended to the name of a SIL file to get the name of its input file
+    static final String INPUT_EXTENSION = ".input";
+
+    private SILBatchRunner() { }
+
+    /**
+     * Runs all the files of the command line
+     * @param options are the command line options holding the files and the number of threads
+     * @param output receives the outputs of all the files
+     */
+    public static void run(SILOptions options, OutputSink output) {
+        ExecutorService executor = createExecutor(options);
+        List<Future<BatchResult>> futures = new ArrayList<>();
+        for (String fileName: options.fileNames) {
+            futures.add(executor.submit(() -> runFile(fileName, options)));
+        }
+        List<BatchResult> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < futures.size(); i++) {
+                // waiting in argument order emits every output as soon as all the earlier files are done
+                BatchResult result;
+                try {
+                    result = futures.get(i).get();
+                } catch (ExecutionException e) {
+                    // a file failing outside of its program, the rest of the batch still runs and is reported
+                    result = new BatchResult(options.fileNames.get(i), new byte[0], -1, e.getCause().toString());
+                }
+                output.write(result.output);
+                output.flush();
+                results.add(result);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdownNow();
+        }
+        for (BatchResult result: results) {
+            if (result.wallTimeNanos < 0)
+                System.err.printf("%s: failed with %s%n", result.fileName, result.failure);
+            else
+                System.err.printf("%s: %.3f ms%s%n", result.fileName, result.wallTimeNanos / 1_000_000.0,
+                        result.failure == null ? "" : " failed with "+result.failure);
+        }
+    }
+
+    private static BatchResult runFile(String fileName, SILOptions options) throws IOException {
+        MemoryOutputSink output = new MemoryOutputSink();
+        String failure = null;
+        long startTime = System.nanoTime();
+        Path inputFile = Path.of(fileName+INPUT_EXTENSION);
+        try (BufferedInputReader input = Files.exists(inputFile) ? BufferedInputReader.open(inputFile)
+                : new StreamInputReader(InputStream.nullInputStream())) {
+            new FileParser(options, output, input).parse(new File(fileName));
+        } catch (RuntimeException e) {
+            // a broken file must not stop the rest of the batch
+            failure = e.toString();
+        }
+        return new BatchResult(fileName, output.toByteArray(), System.nanoTime() - startTime, failure);
+    }
+
+    private static ExecutorService createExecutor(SILOptions options) {
+        if (options.virtualThreads) {
+            try {
+                // looked up reflectively so that the parser still builds and runs on Java versions without them
+                return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException e) {
+                System.err.println("Virtual threads are not supported by this Java version, using platform threads");
+                return Executors.newFixedThreadPool(Math.max(options.threads,
+                        Runtime.getRuntime().availableProcessors()));
+            }
+        }
+        return Executors.newFixedThreadPool(options.threads);
+    }
+
+    private static class BatchResult {
+        final String fileName;
+        final byte[] output;
+        // negative when the file failed before its wall time was taken
+        final long wallTimeNanos;
+        final String failure;
+
+        BatchResult(String fileName, byte[] output, long wallTimeNanos, String failure) {
+            this.fileName = fileName;
+            this.output = output;
+            this.wallTimeNanos = wallTimeNanos;
+            this.failure = failure;
+        }
+    }
+}
@@ -0,0 +1,198 @@
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Snapshot of the complete state of a running SIL program between two instructions: the index of the next
+ * instruction, the variables and the operational and sub routine stacks. A checkpoint is written to a versioned
+ * binary file that stores the stacks as raw int arrays, so writing and restoring it costs little more than copying
+ * those arrays. Input and output are not part of the checkpoint, the output is flushed before a checkpoint is taken
+ * and a resumed program reads its input from the start of its own input.
+ * A checkpoint can only be resumed by the program it was taken from, compiled with the same options, which is
+ * checked through a fingerprint of the instructions.
+ */
+public class SILCheckpoint {
+
+    // must change whenever the layout of the checkpoint file changes
+    static final int CHECKPOINT_VERSION = 1;
+    private static final int MAGIC = 0x53494C53;
+    private static final int HEADER_SIZE = 20;
+
+    final long fingerprint;
+    final int programCounter;
+    final int[] values;
+    final long[] declared;
+    final long[] initialized;
+    final int[] operationalStack;
+    final int[] subRoutineStack;
+
+    SILCheckpoint(long fingerprint, int programCounter, int[] values, long[] declared, long[] initialized,
+                  int[] operationalStack, int[] subRoutineStack) {
+        this.fingerprint = fingerprint;
+        this.programCounter = programCounter;
+        this.values = values;
+        this.declared = declared;
+        this.initialized = initialized;
+        this.operationalStack = operationalStack;
+        this.subRoutineStack = subRoutineStack;
+    }
+
+    /**
+     * Computes the fingerprint a checkpoint of a program is checked against when it is resumed
+     * @param program is the compiled program
+     * @return a checksum of every field of the instructions and of the variable names of the program
+     */
+    static long fingerprintOf(SILProgram program) {
+        CRC32 crc = new CRC32();
+        ByteBuffer buffer = ByteBuffer.allocate(24);
+        for (Instruction instruction: program.instructions) {
+            for (Instruction part = instruction; part != null; part = part.thenInstruction) {
+                buffer.clear();
+                buffer.putInt(part.opCode.ordinal()).putInt(part.lineNumber).putInt(part.jumpLineNumber)
+                        .putInt(part.jumpTarget).putInt(part.constant).putInt(part.relationalOperator).flip();
+                crc.update(buffer);
+                updateInts(crc, part.variableSlots);
+                updateInts(crc, part.expression == null ? null : part.expression.code);
+                updateInts(crc, part.rightExpression == null ? null : part.rightExpression.code);
+                updateText(crc, part.text);
+            }
+        }
+        for (int slot = 0; slot < program.symbolTable.size(); slot++) {
+            updateText(crc, program.symbolTable.nameOf(slot));
+        }
+        // the instruction count keeps programs whose checksums collide apart in most cases
+        return (long) program.instructions.length << 32 | crc.getValue();
+    }
+
+    // the length comes first, so that the fields of an instruction can not be mistaken for the ones of the next
+    private static void updateInts(CRC32 crc, int[] values) {
+        int length = values == null ? 0 : values.length;
+        ByteBuffer buffer = ByteBuffer.allocate(4 + length * 4);
+        buffer.putInt(values == null ? -1 : length);
+        for (int i = 0; i < length; i++) {
+            buffer.putInt(values[i]);
+        }
+        crc.update(buffer.flip());
+    }
+
+    private static void updateText(CRC32 crc, String text) {
+        byte[] bytes = text == null ? new byte[0] : text.getBytes(StandardCharsets.UTF_8);
+        crc.update(ByteBuffer.allocate(4).putInt(text == null ? -1 : bytes.length).flip());
+        crc.update(bytes);
+    }
+
+    /**
+     * Writes the checkpoint. The file is replaced atomically, so a crash while writing keeps the previous
+     * checkpoint.
+     * @param file is the checkpoint file
+     * @throws IOException when the file can not be written
+     */
+    public void write(Path file) throws IOException {
+        ByteBuffer body = ByteBuffer.allocate(8 + 4 + 5 * 4
+                + (values.length + operationalStack.length + subRoutineStack.length) * 4
+                + (declared.length + initialized.length) * 8);
+        body.putLong(fingerprint).putInt(programCounter);
+        putInts(body, values);
+        putLongs(body, declared);
+        putLongs(body, initialized);
+        putInts(body, operationalStack);
+        putInts(body, subRoutineStack);
+        body.flip();
+        CRC32 crc = new CRC32();
+        crc.update(body.duplicate());
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(CHECKPOINT_VERSION).putInt(body.remaining()).putLong(crc.getValue()).flip();
+        Path directory = file.toAbsolutePath().getParent();
+        Path temporaryFile = Files.createTempFile(directory, "checkpoint", ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporaryFile, StandardOpenOption.WRITE)) {
+                ByteBuffer[] buffers = { header, body };
+                while (body.hasRemaining()) {
+                    channel.write(buffers);
+                }
+                channel.force(false);
+            }
+            Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporaryFile);
+        }
+    }
+
+    private static void putInts(ByteBuffer body, int[] values) {
+        body.putInt(values.length);
+        body.asIntBuffer().put(values);
+        body.position(body.position() + values.length * 4);
+    }
+
+    private static void putLongs(ByteBuffer body, long[] values) {
+        body.putInt(values.length);
+        body.asLongBuffer().put(values);
+        body.position(body.position() + values.length * 8);
+    }
+
+    /**
+     * Reads a checkpoint
+     * @param file is the checkpoint file
+     * @return the checkpoint
+     * @throws IOException when the file can not be read or is not a valid checkpoint
+     */
+    public static SILCheckpoint read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer content = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (content.remaining() < HEADER_SIZE || content.getInt() != MAGIC
+                    || content.getInt() != CHECKPOINT_VERSION || content.getInt() != content.remaining() - 8)
+                throw new IOException(file+" is not a checkpoint of this interpreter version");
+            long checksum = content.getLong();
+            CRC32 crc = new CRC32();
+            crc.update(content.duplicate());
+            if (crc.getValue() != checksum)
+                throw new IOException(file+" is corrupt");
+            SILCheckpoint checkpoint = new SILCheckpoint(content.getLong(), content.getInt(), getInts(content),
+                    getLongs(content), getLongs(content), getInts(content), getInts(content));
+            if (content.hasRemaining())
+                throw new IOException(file+" is corrupt");
+            return checkpoint;
+        } catch (BufferUnderflowException e) {
+            throw new IOException(file+" is corrupt");
+        }
+    }
+
+    private static int[] getInts(ByteBuffer content) {
+        int[] values = new int[checkedLength(content, 4)];
+        content.asIntBuffer().get(values);
+        content.position(content.position() + values.length * 4);
+        return values;
+    }
+
+    private static long[] getLongs(ByteBuffer content) {
+        long[] values = new long[checkedLength(content, 8)];
+        content.asLongBuffer().get(values);
+        content.position(content.position() + values.length * 8);
+        return values;
+    }
+
+    // a corrupt length must not allocate a huge array
+    private static int checkedLength(ByteBuffer content, int elementSize) {
+        int length = content.getInt();
+        if (length < 0 || (long) length * elementSize > content.remaining())
+            throw new BufferUnderflowException();
+        return length;
+    }
+
+    // the instruction the resumed program continues with
+    public int getProgramCounter() {
+        return programCounter;
+    }
+
+    public int getOperationalStackSize() {
+        return operationalStack.length;
+    }
+}
\ No newline at end of file
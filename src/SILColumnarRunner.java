@@ -0,0 +1,564 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs one compiled SIL program over many input records at once. The input is column oriented, one int array per
+ * INPUT variable, and every execution of INPUT X by a record reads the value of X of that record.
+ * The records are cut into blocks that run in parallel on a ForkJoinPool. Within a block the records run in
+ * lockstep as a group: every variable is an int array across the records of the group, so straight line code runs
+ * as plain loops over arrays that the JIT can vectorize. When an IF goes different ways for different records the
+ * group splits in two, the groups never merge again so the records of a group always share the same declarations,
+ * GOSUB return addresses and stack depth.
+ * The output of every record is the output the program would print for that record alone,
+ * the outputs are written in record order. A division by zero stops only the records dividing by zero, the others
+ * go on with the rest of the instruction. The program runs without superinstructions, --validate is honoured.
+ */
+public class SILColumnarRunner {
+
+    // number of records run together by one task
+    static final int BLOCK_SIZE = 1024;
+
+    private final Instruction[] instructions;
+    private final SymbolTable symbolTable;
+    // indexed by slot, null for the variables without an input column
+    private final int[][] inputColumns;
+    private final int recordCount;
+
+    /**
+     * @param instructions is the compiled program, superinstructions are not supported
+     * @param symbolTable holds the slots of the variables of the program
+     * @param columns holds the input values of every INPUT variable by name, all columns have the same length
+     */
+    public SILColumnarRunner(Instruction[] instructions, SymbolTable symbolTable, Map<String, int[]> columns) {
+        this.instructions = instructions;
+        this.symbolTable = symbolTable;
+        this.inputColumns = new int[symbolTable.size()][];
+        int length = -1;
+        for (Map.Entry<String, int[]> column: columns.entrySet()) {
+            if (length >= 0 && column.getValue().length != length)
+                throw new IllegalArgumentException("Column "+column.getKey()+" has "+column.getValue().length
+                        +" values instead of "+length);
+            length = column.getValue().length;
+            for (int slot = 0; slot < symbolTable.size(); slot++) {
+                if (symbolTable.nameOf(slot).equals(column.getKey()))
+                    inputColumns[slot] = column.getValue();
+            }
+        }
+        recordCount = Math.max(length, 0);
+    }
+
+    /**
+     * Runs every file of the command line over the records of the --columns file
+     * @param options are the command line options
+     * @param output receives the outputs of all the records
+     */
+    public static void run(SILOptions options, OutputSink output) {
+        Map<String, int[]> columns;
+        try {
+            columns = readColumns(Path.of(options.columnsFile));
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error while reading the columns file "+options.columnsFile+": "+e.getMessage());
+            return;
+        }
+        ForkJoinPool pool = options.threads > 1 ? new ForkJoinPool(options.threads) : ForkJoinPool.commonPool();
+        try {
+            for (String fileName: options.fileNames) {
+                SILFile silFile = new SILFile();
+                try {
+                    silFile.initializeSILFileState(new File(fileName).toPath());
+                } catch (IOException e) {
+                    output.println("Error while reading the file #file-error");
+                    continue;
+                } catch (NumberFormatException e) {
+                    output.println("Invalid line number: "+e.getMessage());
+                    continue;
+                }
+                if (options.optimize)
+                    silFile.optimizeInstructions();
+                if (options.validate) {
+                    List<String> errors = silFile.validateInstructions();
+                    // all the errors are reported at once and none of the records runs
+                    if (!errors.isEmpty()) {
+                        output.println(String.join(System.lineSeparator(), errors));
+                        continue;
+                    }
+                }
+                long startTime = System.nanoTime();
+                new SILColumnarRunner(silFile.getInstructions(), silFile.getSymbolTable(), columns).run(pool, output);
+                if (options.stats) {
+                    System.err.printf("%s: %d records in %.3f ms%n", fileName, columns.isEmpty() ? 0
+                            : columns.values().iterator().next().length, (System.nanoTime() - startTime) / 1e6);
+                }
+            }
+        } finally {
+            if (pool != ForkJoinPool.commonPool())
+                pool.shutdown();
+        }
+        output.flush();
+    }
+
+    /**
+     * Reads a comma separated file whose first line names the INPUT variables, every following line is a record
+     * @param path is the columns file
+     * @return the columns by variable name
+     * @throws IOException when the file can not be read
+     */
+    static Map<String, int[]> readColumns(Path path) throws IOException {
+        List<String> lines = Files.readAllLines(path);
+        Map<String, int[]> columns = new LinkedHashMap<>();
+        if (lines.isEmpty())
+            return columns;
+        String[] names = lines.get(0).split(",");
+        int[][] values = new int[names.length][lines.size() - 1];
+        int recordCount = 0;
+        for (String line: lines.subList(1, lines.size())) {
+            if (line.isBlank())
+                continue;
+            String[] fields = line.split(",");
+            if (fields.length != names.length)
+                throw new IllegalArgumentException("Record "+(recordCount + 1)+" has "+fields.length+" values");
+            for (int column = 0; column < names.length; column++) {
+                values[column][recordCount] = Integer.parseInt(fields[column].trim());
+            }
+            recordCount++;
+        }
+        for (int column = 0; column < names.length; column++) {
+            columns.put(names[column].trim(), Arrays.copyOf(values[column], recordCount));
+        }
+        return columns;
+    }
+
+    /**
+     * Runs the program over all the records
+     * @param pool runs the blocks of records
+     * @param output receives the outputs of the records in record order
+     */
+    public void run(ForkJoinPool pool, OutputSink output) {
+        int blockCount = (recordCount + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        MemoryOutputSink[] blockOutputs = new MemoryOutputSink[blockCount];
+        pool.invoke(new BlockTask(0, blockCount, blockOutputs));
+        for (MemoryOutputSink blockOutput: blockOutputs) {
+            output.write(blockOutput.toByteArray());
+        }
+    }
+
+    // splits the blocks in halves until a single block is left
+    private class BlockTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int firstBlock;
+        private final int endBlock;
+        private final MemoryOutputSink[] blockOutputs;
+
+        BlockTask(int firstBlock, int endBlock, MemoryOutputSink[] blockOutputs) {
+            this.firstBlock = firstBlock;
+            this.endBlock = endBlock;
+            this.blockOutputs = blockOutputs;
+        }
+
+        @Override
+        protected void compute() {
+            if (endBlock - firstBlock > 1) {
+                int middleBlock = (firstBlock + endBlock) >>> 1;
+                invokeAll(new BlockTask(firstBlock, middleBlock, blockOutputs),
+                        new BlockTask(middleBlock, endBlock, blockOutputs));
+                return;
+            }
+            if (endBlock > firstBlock) {
+                int firstRecord = firstBlock * BLOCK_SIZE;
+                blockOutputs[firstBlock] = runBlock(firstRecord, Math.min(firstRecord + BLOCK_SIZE, recordCount));
+            }
+        }
+    }
+
+    private MemoryOutputSink runBlock(int firstRecord, int endRecord) {
+        StringBuilder[] recordOutputs = new StringBuilder[endRecord - firstRecord];
+        Deque<Group> pendingGroups = new ArrayDeque<>();
+        pendingGroups.push(new Group(firstRecord, endRecord, symbolTable.size()));
+        while (!pendingGroups.isEmpty()) {
+            runGroup(pendingGroups.pop(), pendingGroups, recordOutputs, firstRecord);
+        }
+        MemoryOutputSink blockOutput = new MemoryOutputSink();
+        for (StringBuilder recordOutput: recordOutputs) {
+            if (recordOutput != null)
+                blockOutput.print(recordOutput.toString());
+        }
+        return blockOutput;
+    }
+
+    /**
+     * The records of a block that are at the same instruction and share their history. Every array stored in
+     * values or operands is replaced instead of being modified, so variables may share the same array. The arrays
+     * of the expression evaluations are reused by all the instructions of the group, they are never stored.
+     */
+    private static class Group {
+        int[] records;
+        int[][] values;
+        boolean[] declared;
+        int[] returnStack = new int[16];
+        int returnStackSize;
+        int[][] operands = new int[16][];
+        int operandCount;
+        int programCounter;
+        // arrays holding the values computed at every position of the evaluation stack, at least size() long
+        int[][] scratch = new int[8][];
+        // values on the evaluation stack, a scratch array or a variable
+        int[][] evaluationStack = new int[8][];
+        // records stopped by a division by zero in the current instruction
+        int[] failedRecords = new int[0];
+        int failedCount;
+
+        Group(int firstRecord, int endRecord, int slotCount) {
+            records = new int[endRecord - firstRecord];
+            for (int i = 0; i < records.length; i++) {
+                records[i] = firstRecord + i;
+            }
+            values = new int[slotCount][];
+            int[] zeros = new int[records.length];
+            Arrays.fill(values, zeros);
+            declared = new boolean[slotCount];
+        }
+
+        private Group(Group group, int[] positions) {
+            records = gather(group.records, positions);
+            values = new int[group.values.length][];
+            for (int slot = 0; slot < values.length; slot++) {
+                values[slot] = gather(group.values[slot], positions);
+            }
+            declared = group.declared.clone();
+            returnStack = group.returnStack.clone();
+            returnStackSize = group.returnStackSize;
+            operands = new int[group.operands.length][];
+            operandCount = group.operandCount;
+            for (int i = 0; i < operandCount; i++) {
+                operands[i] = gather(group.operands[i], positions);
+            }
+            programCounter = group.programCounter;
+        }
+
+        int size() {
+            return records.length;
+        }
+
+        // returns the records at the given positions as a new group
+        Group select(int[] positions) {
+            return new Group(this, positions);
+        }
+
+        // keeps only the records at the given positions
+        void retain(int[] positions) {
+            Group retained = new Group(this, positions);
+            records = retained.records;
+            values = retained.values;
+            operands = retained.operands;
+        }
+
+        // the scratch array of a position of the evaluation stack
+        int[] scratch(int position) {
+            if (position >= scratch.length)
+                scratch = Arrays.copyOf(scratch, Math.max(position + 1, scratch.length * 2));
+            if (scratch[position] == null)
+                scratch[position] = new int[size()];
+            return scratch[position];
+        }
+
+        int[][] evaluationStack(int depth) {
+            if (depth > evaluationStack.length)
+                evaluationStack = Arrays.copyOf(evaluationStack, Math.max(depth, evaluationStack.length * 2));
+            return evaluationStack;
+        }
+
+        /**
+         * Stops the failed records, the others keep the values of the evaluation stack and go on
+         * @param failed marks the failed records by position
+         * @param depth is the number of values on the evaluation stack
+         */
+        void stopRecords(boolean[] failed, int depth) {
+            int[] positions = new int[size()];
+            int count = 0;
+            for (int i = 0; i < size(); i++) {
+                if (!failed[i]) {
+                    positions[count++] = i;
+                } else {
+                    if (failedCount == failedRecords.length)
+                        failedRecords = Arrays.copyOf(failedRecords, Math.max(4, failedCount * 2));
+                    failedRecords[failedCount++] = records[i];
+                }
+            }
+            positions = Arrays.copyOf(positions, count);
+            for (int position = 0; position < depth; position++) {
+                // the positions only grow, so the values move down within the same array without being overwritten
+                int[] values = evaluationStack[position];
+                int[] compacted = scratch(position);
+                for (int i = 0; i < count; i++) {
+                    compacted[i] = values[positions[i]];
+                }
+                evaluationStack[position] = compacted;
+            }
+            retain(positions);
+        }
+
+        void pushOperand(int[] operand) {
+            if (operandCount == operands.length)
+                operands = Arrays.copyOf(operands, operandCount * 2);
+            operands[operandCount++] = operand;
+        }
+
+        private static int[] gather(int[] column, int[] positions) {
+            int[] gathered = new int[positions.length];
+            for (int i = 0; i < positions.length; i++) {
+                gathered[i] = column[positions[i]];
+            }
+            return gathered;
+        }
+    }
+
+    private void runGroup(Group group, Deque<Group> pendingGroups, StringBuilder[] recordOutputs, int firstRecord) {
+        try {
+            while (group.programCounter < instructions.length && group.size() > 0) {
+                group.programCounter = executeInstruction(group, instructions[group.programCounter],
+                        group.programCounter + 1, pendingGroups, recordOutputs, firstRecord);
+                printFailures(group, recordOutputs, firstRecord);
+            }
+        } catch (SILExecutionException | UnsupportedOperationException e) {
+            printFailures(group, recordOutputs, firstRecord);
+            // the error of the whole group stops all its records
+            for (int record: group.records) {
+                println(recordOutputs, record - firstRecord, e.getMessage());
+            }
+        }
+    }
+
+    // the records that divided by zero end their output with the error of the interpreter
+    private static void printFailures(Group group, StringBuilder[] recordOutputs, int firstRecord) {
+        for (int i = 0; i < group.failedCount; i++) {
+            println(recordOutputs, group.failedRecords[i] - firstRecord, "Cannot divide by zero");
+        }
+        group.failedCount = 0;
+    }
+
+    /**
+     * Executes one instruction for all the records of a group
+     * @return the index of the next instruction, past the end of the program when the group is done
+     */
+    private int executeInstruction(Group group, Instruction instruction, int nextIndex, Deque<Group> pendingGroups,
+                                   StringBuilder[] recordOutputs, int firstRecord) {
+        switch (instruction.opCode) {
+            case INTEGER -> {
+                int[] minimumValues = new int[group.size()];
+                Arrays.fill(minimumValues, Integer.MIN_VALUE);
+                for (int slot: instruction.variableSlots) {
+                    group.values[slot] = minimumValues;
+                    group.declared[slot] = true;
+                }
+            }
+            case INPUT -> {
+                for (int slot: instruction.variableSlots) {
+                    checkDeclared(group, slot, symbolTable.nameOf(slot)+" variable not declared at "
+                            +instruction.lineNumber);
+                }
+                for (int slot: instruction.variableSlots) {
+                    if (inputColumns[slot] == null)
+                        throw new SILExecutionException("Line "+instruction.lineNumber+" missing input value");
+                    group.values[slot] = Group.gather(inputColumns[slot], group.records);
+                }
+            }
+            case LET -> {
+                int slot = instruction.variableSlots[0];
+                checkDeclared(group, slot, symbolTable.nameOf(slot)+" variable not declared at "
+                        +instruction.lineNumber);
+                group.values[slot] = Arrays.copyOf(evaluate(instruction.expression, group, 0), group.size());
+            }
+            case PUSH -> group.pushOperand(Arrays.copyOf(evaluate(instruction.expression, group, 0), group.size()));
+            case POP -> {
+                int slot = instruction.variableSlots[0];
+                checkDeclared(group, slot, symbolTable.nameOf(slot)+" not declared at line "+instruction.lineNumber);
+                // same message as the EmptyStackException of the interpreter
+                if (group.operandCount == 0)
+                    throw new SILExecutionException(null);
+                group.values[slot] = group.operands[--group.operandCount];
+                group.operands[group.operandCount] = null;
+            }
+            case IF -> {
+                return executeConditionalInstruction(group, instruction, nextIndex, pendingGroups, recordOutputs,
+                        firstRecord);
+            }
+            case GOTO -> {
+                return instruction.jumpTarget;
+            }
+            case GOSUB -> {
+                if (group.returnStackSize == group.returnStack.length)
+                    group.returnStack = Arrays.copyOf(group.returnStack, group.returnStackSize * 2);
+                group.returnStack[group.returnStackSize++] = nextIndex;
+                return instruction.jumpTarget;
+            }
+            case RET -> {
+                if (group.returnStackSize == 0)
+                    throw new SILExecutionException("RET without GOSUB at "+instruction.lineNumber);
+                return group.returnStack[--group.returnStackSize];
+            }
+            case PRINT, PRINTLN -> {
+                boolean newLine = instruction.opCode == OpCode.PRINTLN;
+                if (instruction.text != null) {
+                    for (int record: group.records) {
+                        print(recordOutputs, record - firstRecord, instruction.text, newLine);
+                    }
+                } else {
+                    int[] results = evaluate(instruction.expression, group, 0);
+                    for (int i = 0; i < group.size(); i++) {
+                        print(recordOutputs, group.records[i] - firstRecord, String.valueOf(results[i]), newLine);
+                    }
+                }
+            }
+            case END -> {
+                return Integer.MAX_VALUE;
+            }
+            case ERROR -> throw new SILExecutionException(instruction.text);
+            default -> {
+                for (int record: group.records) {
+                    println(recordOutputs, record - firstRecord, "Syntax error occurred while parsing");
+                }
+            }
+        }
+        return nextIndex;
+    }
+
+    private int executeConditionalInstruction(Group group, Instruction instruction, int nextIndex,
+                                              Deque<Group> pendingGroups, StringBuilder[] recordOutputs,
+                                              int firstRecord) {
+        evaluate(instruction.expression, group, 0);
+        int[] rightOperands = evaluate(instruction.rightExpression, group, 1);
+        // read after the right expression, the records it stops are removed from the left values as well
+        int[] leftOperands = group.evaluationStack[0];
+        if (instruction.thenInstruction == null || group.size() == 0)
+            return nextIndex;
+        // the positions are written to the scratch arrays of the operands, never ahead of the operand being read
+        int[] holding = group.scratch(0);
+        int[] failing = group.scratch(1);
+        int holdingCount = 0;
+        int failingCount = 0;
+        for (int i = 0; i < group.size(); i++) {
+            if (FileParser.computeExpressionResult(instruction.relationalOperator, leftOperands[i], rightOperands[i]))
+                holding[holdingCount++] = i;
+            else
+                failing[failingCount++] = i;
+        }
+        if (holdingCount == 0)
+            return nextIndex;
+        if (failingCount > 0) {
+            // the records skipping the THEN instruction go on as a group of their own
+            Group failingGroup = group.select(Arrays.copyOf(failing, failingCount));
+            failingGroup.programCounter = nextIndex;
+            pendingGroups.push(failingGroup);
+            group.retain(Arrays.copyOf(holding, holdingCount));
+        }
+        return executeInstruction(group, instruction.thenInstruction, nextIndex, pendingGroups, recordOutputs,
+                firstRecord);
+    }
+
+    /**
+     * Evaluates an expression for all the records of a group, every operator is a loop over the operand arrays.
+     * The records dividing by zero are stopped, the expression goes on for the others.
+     * @param expression is the compiled expression
+     * @param group holds the variable values of the records
+     * @param base is the position of the value on the evaluation stack, the values below it are kept
+     * @return the values of the expression for the size() records of the group, the array must neither be modified
+     * nor stored as it may be a variable or a scratch array of the group
+     */
+    private int[] evaluate(Expression expression, Group group, int base) {
+        int[] code = expression.code;
+        int[][] stack = group.evaluationStack(base + code.length);
+        int stackSize = base;
+        for (int i = 0; i < code.length; i++) {
+            switch (code[i]) {
+                case Expression.CONSTANT -> {
+                    int[] constants = group.scratch(stackSize);
+                    Arrays.fill(constants, 0, group.size(), code[++i]);
+                    stack[stackSize++] = constants;
+                }
+                case Expression.VARIABLE -> {
+                    int slot = code[++i];
+                    checkDeclared(group, slot, symbolTable.nameOf(slot)+" variable not declared");
+                    stack[stackSize++] = group.values[slot];
+                }
+                default -> {
+                    int[] rightOperands = stack[--stackSize];
+                    int[] results = group.scratch(stackSize - 1);
+                    boolean[] failed = applyOp((char) code[i], stack[stackSize - 1], rightOperands, results,
+                            group.size());
+                    stack[stackSize - 1] = results;
+                    if (failed != null)
+                        group.stopRecords(failed, stackSize);
+                }
+            }
+        }
+        return stack[base];
+    }
+
+    /**
+     * Applies an operator to the operands of the records, the results may be written to the left operands
+     * @return the records dividing by zero, null when there are none
+     */
+    private static boolean[] applyOp(char op, int[] leftOperands, int[] rightOperands, int[] results, int size) {
+        boolean[] failed = null;
+        switch (op) {
+            case '+' -> {
+                for (int i = 0; i < size; i++) {
+                    results[i] = leftOperands[i] + rightOperands[i];
+                }
+            }
+            case '-' -> {
+                for (int i = 0; i < size; i++) {
+                    results[i] = leftOperands[i] - rightOperands[i];
+                }
+            }
+            case '*' -> {
+                for (int i = 0; i < size; i++) {
+                    results[i] = leftOperands[i] * rightOperands[i];
+                }
+            }
+            case '/' -> {
+                for (int i = 0; i < size; i++) {
+                    if (rightOperands[i] == 0) {
+                        if (failed == null)
+                            failed = new boolean[size];
+                        failed[i] = true;
+                        results[i] = 0;
+                    } else {
+                        results[i] = leftOperands[i] / rightOperands[i];
+                    }
+                }
+            }
+            default -> { }
+        }
+        return failed;
+    }
+
+    private static void checkDeclared(Group group, int slot, String message) {
+        if (!group.declared[slot])
+            throw new SILExecutionException(message);
+    }
+
+    private static void print(StringBuilder[] recordOutputs, int record, String text, boolean newLine) {
+        StringBuilder recordOutput = recordOutputs[record];
+        if (recordOutput == null)
+            recordOutput = recordOutputs[record] = new StringBuilder();
+        recordOutput.append(text);
+        if (newLine)
+            recordOutput.append(System.lineSeparator());
+    }
+
+    private static void println(StringBuilder[] recordOutputs, int record, String text) {
+        print(recordOutputs, record, text, true);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,391 @@
+import java.util.Arrays;
+
+/**
+ * This class compiles the code lines of a SIL file into an array of pre-decoded instructions.
+ * Every line is lexed exactly once, expressions are turned into postfix code, variable names are
+ * resolved into slots of the symbol table and GOTO / GOSUB line numbers are resolved into indexes
+ * of the instruction array.
+ * The lexer works on any CharSequence and skips the spaces the beautifier would remove, so it compiles the
+ * beautified lines of SILFile as well as raw source code read straight from a mapped file.
+ */
+public class SILCompiler {
+
+    private static final OpCode[] keywords = {
+            OpCode.INTEGER, OpCode.INPUT, OpCode.LET, OpCode.PUSH, OpCode.POP, OpCode.IF,
+            OpCode.GOTO, OpCode.GOSUB, OpCode.PRINT, OpCode.PRINTLN, OpCode.RET, OpCode.END
+    };
+
+    private final SymbolTable symbolTable;
+    private int lineNumber;
+    private CharSequence code;
+    private int position;
+    private int end;
+    private int[] postfixCode = new int[16];
+    private int postfixLength;
+
+    SILCompiler(SymbolTable symbolTable) {
+        this.symbolTable = symbolTable;
+    }
+
+    /**
+     * Compiles all the code lines of a SIL file
+     * @param codeLines is the beautified code of the file with its line numbers
+     * @param symbolTable receives the slots of all the variables used by the file
+     * @return the instructions in the same order as the code lines
+     */
+    public static Instruction[] compile(LineTable codeLines, SymbolTable symbolTable) {
+        SILCompiler compiler = new SILCompiler(symbolTable);
+        Instruction[] instructions = new Instruction[codeLines.size()];
+        for (int index = 0; index < codeLines.size(); index++) {
+            String code = codeLines.codeAt(index);
+            instructions[index] = compiler.compileCodeLine(codeLines.lineNumberAt(index), code, 0, code.length());
+        }
+        resolveJumpTargets(instructions, codeLines);
+        return instructions;
+    }
+
+    /**
+     * Compiles a single code line
+     * @param lineNumber is the line number of the code line
+     * @param code is the code line without its line number
+     * @param symbolTable resolves the variable names of the line into slots
+     * @return the compiled instruction, jump targets are not resolved yet
+     */
+    public static Instruction compileCodeLine(int lineNumber, String code, SymbolTable symbolTable) {
+        return new SILCompiler(symbolTable).compileCodeLine(lineNumber, code, 0, code.length());
+    }
+
+    /**
+     * Compiles the code of a line found in a range of a larger character sequence
+     * @param lineNumber is the line number of the code line
+     * @param code holds the code line without its line number
+     * @param start is the index of the first character of the code line
+     * @param end is the index following the last character of the code line
+     * @return the compiled instruction, jump targets are not resolved yet
+     */
+    Instruction compileCodeLine(int lineNumber, CharSequence code, int start, int end) {
+        this.lineNumber = lineNumber;
+        this.code = code;
+        this.position = start;
+        this.end = end;
+        try {
+            return compileInstruction();
+        } catch (IllegalArgumentException e) {
+            return error(e.getMessage());
+        }
+    }
+
+    private Instruction compileInstruction() {
+        skipSpaces();
+        int wordStart = position;
+        while (position < end && code.charAt(position) != ' ')
+            position++;
+        OpCode opCode = keywordOf(wordStart, position);
+        skipSpaces();
+        if (opCode == null)
+            return new Instruction(OpCode.INVALID, lineNumber);
+        Instruction instruction = new Instruction(opCode, lineNumber);
+        switch (opCode) {
+            case INTEGER -> {
+                instruction.variableSlots = compileVariableList(true);
+                if (instruction.variableSlots == null)
+                    return error("Not a valid variable name at "+lineNumber);
+            }
+            case INPUT -> instruction.variableSlots = compileVariableList(false);
+            case POP -> instruction.variableSlots = compileVariableList(false);
+            case LET -> compileInitialization(instruction);
+            case PUSH -> instruction.expression = compileExpression(end);
+            case IF -> {
+                return compileConditionalInstruction(instruction);
+            }
+            case GOTO, GOSUB -> instruction.jumpLineNumber = compileLineNumber();
+            case PRINT, PRINTLN -> {
+                if (position < end && code.charAt(position) == '"')
+                    instruction.text = compileLiteral();
+                else
+                    instruction.expression = compileExpression(end);
+            }
+        }
+        return instruction;
+    }
+
+    // keywords are matched ignoring case because the beautifier upper cases the instruction words
+    private OpCode keywordOf(int wordStart, int wordEnd) {
+        for (OpCode keyword: keywords) {
+            String name = keyword.name();
+            if (name.length() != wordEnd - wordStart)
+                continue;
+            int i = 0;
+            while (i < name.length() && Character.toUpperCase(code.charAt(wordStart + i)) == name.charAt(i))
+                i++;
+            if (i == name.length())
+                return keyword;
+        }
+        return null;
+    }
+
+    /**
+     * Compiles a comma separated list of variable names, empty names at the end are dropped like String.split does
+     * @param validate makes names that are not valid variable names fail the compilation
+     * @return the slots of the variables or null when a name is invalid
+     */
+    private int[] compileVariableList(boolean validate) {
+        int listEnd = end;
+        while (listEnd > position && (code.charAt(listEnd - 1) == ',' || code.charAt(listEnd - 1) == ' '))
+            listEnd--;
+        int variableCount = 1;
+        for (int i = position; i < listEnd; i++) {
+            if (code.charAt(i) == ',')
+                variableCount++;
+        }
+        int[] variableSlots = new int[variableCount];
+        for (int i = 0; i < variableCount; i++) {
+            int nameEnd = indexOf(',', position, listEnd);
+            if (nameEnd < 0)
+                nameEnd = listEnd;
+            variableSlots[i] = compileVariableName(position, nameEnd);
+            if (validate && !StringUtils.isValidVariableName(symbolTable.nameOf(variableSlots[i])))
+                return null;
+            position = nameEnd + 1;
+        }
+        position = end;
+        return variableSlots;
+    }
+
+    /**
+     * Resolves a variable name into its slot, spaces are ignored just like the beautifier removes them
+     * @param nameStart is the index of the first character of the name
+     * @param nameEnd is the index following the name
+     * @return the slot of the variable
+     */
+    private int compileVariableName(int nameStart, int nameEnd) {
+        while (nameStart < nameEnd && code.charAt(nameStart) == ' ')
+            nameStart++;
+        while (nameEnd > nameStart && code.charAt(nameEnd - 1) == ' ')
+            nameEnd--;
+        if (indexOf(' ', nameStart, nameEnd) < 0)
+            return symbolTable.slotOf(code, nameStart, nameEnd);
+        StringBuilder name = new StringBuilder();
+        for (int i = nameStart; i < nameEnd; i++) {
+            if (code.charAt(i) != ' ')
+                name.append(code.charAt(i));
+        }
+        return symbolTable.slotOf(name.toString());
+    }
+
+    private void compileInitialization(Instruction instruction) {
+        int assignment = indexOf('=', position, end);
+        if (assignment < 0 || indexOf('=', assignment + 1, end) >= 0 || isBlank(assignment + 1, end))
+            throw new IllegalArgumentException("Invalid initialization at "+lineNumber);
+        instruction.variableSlots = new int[] { compileVariableName(position, assignment) };
+        position = assignment + 1;
+        instruction.expression = compileExpression(end);
+    }
+
+    private Instruction compileConditionalInstruction(Instruction instruction) {
+        int lineEnd = end;
+        int then = indexOf("THEN", position, lineEnd);
+        if (then < 0 || isBlank(then + "THEN".length(), lineEnd)
+                || indexOf("THEN", then + "THEN".length(), lineEnd) >= 0)
+            throw new IllegalArgumentException("Invalid conditional statement at "+lineNumber);
+        int operator = -1;
+        for (char relationalOperator: new char[] { '<', '>', '=', '!' }) {
+            operator = indexOf(relationalOperator, position, then);
+            if (operator >= 0)
+                break;
+        }
+        if (operator < 0)
+            throw new IllegalArgumentException("If clause doesn't have a valid relational operator at "+lineNumber);
+        if (indexOf(code.charAt(operator), operator + 1, then) >= 0 || isBlank(operator + 1, then))
+            throw new IllegalArgumentException("Invalid conditional statement at "+lineNumber);
+        instruction.relationalOperator = code.charAt(operator);
+        instruction.expression = compileExpression(operator);
+        position = operator + 1;
+        instruction.rightExpression = compileExpression(then);
+        // only PRINT, PRINTLN and GOTO are supported after THEN, anything else leaves the IF without effect
+        Instruction thenInstruction = compileCodeLine(lineNumber, code, then + "THEN".length(), lineEnd);
+        switch (thenInstruction.opCode) {
+            case PRINT, PRINTLN, GOTO, ERROR -> instruction.thenInstruction = thenInstruction;
+        }
+        return instruction;
+    }
+
+    // spaces are ignored anywhere in the line number, the beautifier removes them before Integer.parseInt
+    private int compileLineNumber() {
+        boolean negative = position < end && code.charAt(position) == '-';
+        if (negative || (position < end && code.charAt(position) == '+'))
+            position++;
+        long value = 0;
+        int digitCount = 0;
+        for (; position < end; position++) {
+            char character = code.charAt(position);
+            if (character == ' ')
+                continue;
+            if (character < '0' || character > '9' || value > Integer.MAX_VALUE)
+                throw new IllegalArgumentException("Invalid line number at "+lineNumber);
+            value = value * 10 + (character - '0');
+            digitCount++;
+        }
+        value = negative ? -value : value;
+        if (digitCount == 0 || value > Integer.MAX_VALUE || value < Integer.MIN_VALUE)
+            throw new IllegalArgumentException("Invalid line number at "+lineNumber);
+        return (int) value;
+    }
+
+    // the quotes are dropped and so are the spaces outside of them, just like beautifying and printing did
+    private String compileLiteral() {
+        StringBuilder literal = new StringBuilder();
+        boolean isPrintable = false;
+        for (int i = position; i < end; i++) {
+            char character = code.charAt(i);
+            if (character == '"')
+                isPrintable = !isPrintable;
+            else if (isPrintable || character != ' ')
+                literal.append(character);
+        }
+        position = end;
+        return literal.toString();
+    }
+
+    private boolean isBlank(int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (code.charAt(i) != ' ')
+                return false;
+        }
+        return true;
+    }
+
+    private int indexOf(char character, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (code.charAt(i) == character)
+                return i;
+        }
+        return -1;
+    }
+
+    private int indexOf(String word, int from, int to) {
+        for (int i = from; i + word.length() <= to; i++) {
+            int j = 0;
+            while (j < word.length() && code.charAt(i + j) == word.charAt(j))
+                j++;
+            if (j == word.length())
+                return i;
+        }
+        return -1;
+    }
+
+    private Instruction error(String message) {
+        Instruction instruction = new Instruction(OpCode.ERROR, lineNumber);
+        instruction.text = message;
+        return instruction;
+    }
+
+    /**
+     * A GOTO or GOSUB continues with the first line whose number is not smaller than the written line number
+     * @param instructions is the compiled program
+     * @param lines holds the line numbers in the order of the instructions
+     */
+    static void resolveJumpTargets(Instruction[] instructions, LineTable lines) {
+        for (Instruction instruction: instructions) {
+            Instruction jumpInstruction = instruction.opCode == OpCode.IF ? instruction.thenInstruction : instruction;
+            if (jumpInstruction == null)
+                continue;
+            if (jumpInstruction.opCode == OpCode.GOTO || jumpInstruction.opCode == OpCode.GOSUB)
+                jumpInstruction.jumpTarget = lines.jumpTargetOf(jumpInstruction.jumpLineNumber);
+        }
+    }
+
+    /**
+     * Parses an arithmetic expression into postfix code. The functions below mimic the grammar rules:
+     * expression : term (('+' | '-') term)*
+     * term       : factor (('*' | '/') factor)*
+     * factor     : number | variable | '(' expression ')'
+     * @param expressionEnd is the index following the expression
+     * @return the compiled expression
+     */
+    private Expression compileExpression(int expressionEnd) {
+        int lineEnd = end;
+        end = expressionEnd;
+        postfixLength = 0;
+        parseExpression();
+        skipSpaces();
+        if (position != end)
+            throw new IllegalArgumentException("Invalid expression at "+lineNumber);
+        end = lineEnd;
+        return new Expression(Arrays.copyOf(postfixCode, postfixLength));
+    }
+
+    private void parseExpression() {
+        parseTerm();
+        while (peek() == '+' || peek() == '-') {
+            char operator = code.charAt(position++);
+            parseTerm();
+            emit(operator);
+        }
+    }
+
+    private void parseTerm() {
+        parseFactor();
+        while (peek() == '*' || peek() == '/') {
+            char operator = code.charAt(position++);
+            parseFactor();
+            emit(operator);
+        }
+    }
+
+    private void parseFactor() {
+        char character = peek();
+        if (character == '(') {
+            position++;
+            parseExpression();
+            if (peek() != ')')
+                throw new IllegalArgumentException("Invalid expression at "+lineNumber);
+            position++;
+            return;
+        }
+        // spaces inside numbers and names are skipped because the beautifier removes them
+        int start = position;
+        if (character >= '0' && character <= '9') {
+            long value = 0;
+            for (; position < end; position++) {
+                char digit = code.charAt(position);
+                if (digit == ' ')
+                    continue;
+                if (digit < '0' || digit > '9')
+                    break;
+                value = value * 10 + (digit - '0');
+                if (value > Integer.MAX_VALUE)
+                    throw new IllegalArgumentException("Invalid expression at "+lineNumber);
+            }
+            emit(Expression.CONSTANT);
+            emit((int) value);
+            return;
+        }
+        if (StringUtils.isVariableStart(character)) {
+            while (position < end
+                    && (code.charAt(position) == ' ' || StringUtils.isVariablePart(code.charAt(position))))
+                position++;
+            emit(Expression.VARIABLE);
+            emit(compileVariableName(start, position));
+            return;
+        }
+        throw new IllegalArgumentException("Invalid expression at "+lineNumber);
+    }
+
+    private void emit(int value) {
+        if (postfixLength == postfixCode.length)
+            postfixCode = Arrays.copyOf(postfixCode, postfixLength * 2);
+        postfixCode[postfixLength++] = value;
+    }
+
+    // returns the next non space character or 0 at the end of the expression
+    private char peek() {
+        skipSpaces();
+        return position < end ? code.charAt(position) : 0;
+    }
+
+    private void skipSpaces() {
+        while (position < end && code.charAt(position) == ' ')
+            position++;
+    }
+}
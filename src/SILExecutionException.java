@@ -0,0 +1,13 @@
+/**
+ * Raised when a SIL program stops because of an error. Only the program that raised it is stopped,
+ * its message is reported as the last output of that program.
+ */
+public class SILExecutionException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public SILExecutionException(String message) {
+        // the stack trace is of no use to a SIL programmer, skipping it keeps error paths cheap
+        super(message, null, false, false);
+    }
+}
\ No newline at end of file
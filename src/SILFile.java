@@ -1,48 +1,106 @@
-import java.util.LinkedHashMap;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.BiConsumer;
 
 /**
- * This class is a singleton which is used to store the content and properties of input instructions file.
- * Class stores code lines, last line number, current line under execution
+ * This class is used to store the content and properties of one input instructions file.
+ * Every parsed file gets its own instance so that programs never share state.
+ * Class stores code lines, compiled instructions, variable slots, last line number, current line under execution
  */
 public class SILFile {
 
-    private static SILFile sInstance;
-    private final LinkedHashMap<Integer, String> codeLines = new LinkedHashMap<>();
-    private Integer currentLineUnderExecution;
+    private final LineTable codeLines = new LineTable();
+    private final SymbolTable symbolTable = new SymbolTable();
+    private Instruction[] instructions;
+    private int currentLineUnderExecution;
     private Integer firstLineNumber;
     private Integer lastLineNumber;
+    // order of the line numbers of a file beautified in parallel, null for the other files
+    private SILFileBeautifier.LineOrder lineOrder;
 
-    // constructor made private because this is going to be a Singleton
-    private SILFile() { }
+    public void initializeSILFileState(List<String> rawFileLines) {
+        // beautify the code, large files in parallel chunks
+        if (rawFileLines.size() >= 2 * SILFileBeautifier.CHUNK_SIZE)
+            lineOrder = SILFileBeautifier.beautify(rawFileLines, codeLines, ForkJoinPool.commonPool());
+        else
+            SILFileBeautifier.beautify(rawFileLines, codeLines);
+        // compile the beautified code so that no line has to be re-parsed while executing
+        instructions = SILCompiler.compile(codeLines, symbolTable);
+        // Retrieve the line numbers of the file
+        if (codeLines.size() > 0) {
+            setFirstLineNumber(codeLines.lineNumberAt(0));
+            setLastLineNumber(codeLines.lineNumberAt(codeLines.size() - 1));
+        }
+    }
 
-    // returns the InputFile Singleton
-    public static SILFile getInstance() {
-        if (sInstance == null) {
-            sInstance = new SILFile();
+    /**
+     * Loads a file with the MappedSILLoader, the code lines are compiled straight from the mapped file
+     * and are not kept, so getCodeLines stays empty
+     * @param path is the SIL file
+     * @throws IOException when the file can not be read
+     */
+    public void initializeSILFileState(Path path) throws IOException {
+        MappedSILLoader loader = new MappedSILLoader(symbolTable);
+        loader.load(path);
+        instructions = loader.getInstructions();
+        LineTable lines = loader.getLines();
+        if (lines.size() > 0) {
+            setFirstLineNumber(lines.lineNumberAt(0));
+            setLastLineNumber(lines.lineNumberAt(lines.size() - 1));
         }
-        return sInstance;
     }
 
-    public void initializeSILFileState(List<String> rawFileLines) {
-        // beautify the code
-        SILFileBeautifier.beautify(rawFileLines, codeLines);
-        // Retrieve the line numbers of the file
-        Object[] lineNumbers = codeLines.keySet().toArray();
-        setFirstLineNumber((Integer) lineNumbers[0]);
-        setLastLineNumber((Integer) lineNumbers[lineNumbers.length - 1]);
+    /**
+     * Restores a program loaded from the SILProgramCache, the symbol table must hold its variables already
+     * @param instructions is the compiled program
+     * @param firstLineNumber is the first line number of the file
+     * @param lastLineNumber is the last line number of the file
+     */
+    public void initializeSILFileState(Instruction[] instructions, int firstLineNumber, int lastLineNumber) {
+        this.instructions = instructions;
+        if (instructions.length > 0) {
+            setFirstLineNumber(firstLineNumber);
+            setLastLineNumber(lastLineNumber);
+        }
     }
 
-    public LinkedHashMap<Integer, String> getCodeLines() {
+    public LineTable getCodeLines() {
         return codeLines;
     }
 
-    public void setCurrentLineUnderExecution(Integer lineNumber) {
+    // replaces the compiled instructions with their optimized version
+    public void optimizeInstructions() {
+        instructions = SILOptimizer.optimize(instructions);
+    }
+
+    /**
+     * Validates the whole program, must be called before fuseInstructions
+     * @return the errors of the program with their line numbers, empty when the program is valid
+     */
+    public List<String> validateInstructions() {
+        return SILValidator.validate(instructions, symbolTable);
+    }
+
+    // replaces common instruction sequences with superinstructions, after the optimization
+    public void fuseInstructions() {
+        instructions = SILFuser.fuse(instructions, symbolTable);
+    }
+
+    public Instruction[] getInstructions() {
+        return instructions;
+    }
+
+    public SymbolTable getSymbolTable() {
+        return symbolTable;
+    }
+
+    public void setCurrentLineUnderExecution(int lineNumber) {
         currentLineUnderExecution = lineNumber;
     }
 
-    public Integer getCurrentLineUnderExecution() {
+    public int getCurrentLineUnderExecution() {
         return currentLineUnderExecution;
     }
 
@@ -61,4 +119,8 @@ public class SILFile {
     public Integer getLastLineNumber() {
         return lastLineNumber;
     }
+
+    public SILFileBeautifier.LineOrder getLineOrder() {
+        return lineOrder;
+    }
 }
\ No newline at end of file
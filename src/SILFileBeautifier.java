@@ -1,25 +1,20 @@
-import java.util.ArrayList;
-import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 public class SILFileBeautifier {
 
-    private static final List<String> rejectionArray = new ArrayList<>();
+    // immutable so that files can be beautified concurrently
+    private static final List<String> rejectionArray = List.of("PRINT", "PRINTLN", "IF");
     private static final String end  = "END";
     private static final String ret = "RET";
     private static final String print = "PRINT";
     private static final String println = "PRINTLN";
     private static final String iF = "IF";
+    // number of raw lines beautified by one task of the parallel beautifier
+    static final int CHUNK_SIZE = 16384;
 
-    private static void initializeRejectionArray() {
-        rejectionArray.add("PRINT");
-        rejectionArray.add("PRINTLN");
-        rejectionArray.add("IF");
-    }
-
-    public static void beautify(List<String> rawFileLines,
-                                LinkedHashMap<Integer, String> beautifiedFileLines) throws NumberFormatException {
-        initializeRejectionArray();
+    public static void beautify(List<String> rawFileLines, LineTable beautifiedFileLines) throws NumberFormatException {
         for (String rawFileLine: rawFileLines) {
             Integer lineNumber = fetchLineNumber(rawFileLine);
             String beautifiedLine = beautifyCodeLine(StringUtils.deleteFirstWordFromSentence(rawFileLine));
@@ -27,6 +22,136 @@ public class SILFileBeautifier {
         }
     }
 
+    /**
+     * Beautifies the lines in line aligned chunks on a ForkJoinPool and merges the chunks in file order, the merged
+     * lines and the reported errors are the same as the ones of the sequential beautify
+     * @param rawFileLines are the lines of the file, a list with fast random access
+     * @param beautifiedFileLines receives the beautified lines with their line numbers
+     * @param pool runs the chunks
+     * @return the line numbers found again or out of order during the merge
+     * @throws NumberFormatException for the first line of the file without a valid line number
+     */
+    public static LineOrder beautify(List<String> rawFileLines, LineTable beautifiedFileLines, ForkJoinPool pool)
+            throws NumberFormatException {
+        Chunk[] chunks = new Chunk[(rawFileLines.size() + CHUNK_SIZE - 1) / CHUNK_SIZE];
+        pool.invoke(new ChunkTask(rawFileLines, chunks, 0, chunks.length));
+        LineOrder lineOrder = new LineOrder();
+        int previousLineNumber = Integer.MIN_VALUE;
+        for (Chunk chunk: chunks) {
+            for (int i = 0; i < chunk.size; i++) {
+                int lineNumber = chunk.lineNumbers[i];
+                if (beautifiedFileLines.put(lineNumber, chunk.codeLines[i])) {
+                    lineOrder.addDuplicate(lineNumber);
+                    continue;
+                }
+                // a line is out of order when its number is below the one of the line added before it
+                if (lineNumber < previousLineNumber)
+                    lineOrder.addOutOfOrder(lineNumber);
+                previousLineNumber = lineNumber;
+            }
+            // the lines after a failing line are never reached by the sequential beautify either
+            if (chunk.failure != null)
+                throw chunk.failure;
+        }
+        return lineOrder;
+    }
+
+    // the beautified lines of one chunk, up to the first line that failed
+    private static class Chunk {
+        final int[] lineNumbers;
+        final String[] codeLines;
+        int size;
+        RuntimeException failure;
+
+        Chunk(int capacity) {
+            lineNumbers = new int[capacity];
+            codeLines = new String[capacity];
+        }
+    }
+
+    // splits the chunks in halves until a single chunk is left
+    private static class ChunkTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final List<String> rawFileLines;
+        private final Chunk[] chunks;
+        private final int firstChunk;
+        private final int endChunk;
+
+        ChunkTask(List<String> rawFileLines, Chunk[] chunks, int firstChunk, int endChunk) {
+            this.rawFileLines = rawFileLines;
+            this.chunks = chunks;
+            this.firstChunk = firstChunk;
+            this.endChunk = endChunk;
+        }
+
+        @Override
+        protected void compute() {
+            if (endChunk - firstChunk > 1) {
+                int middleChunk = (firstChunk + endChunk) >>> 1;
+                invokeAll(new ChunkTask(rawFileLines, chunks, firstChunk, middleChunk),
+                        new ChunkTask(rawFileLines, chunks, middleChunk, endChunk));
+                return;
+            }
+            if (endChunk > firstChunk) {
+                int firstLine = firstChunk * CHUNK_SIZE;
+                int endLine = Math.min(firstLine + CHUNK_SIZE, rawFileLines.size());
+                Chunk chunk = new Chunk(endLine - firstLine);
+                try {
+                    for (String rawFileLine: rawFileLines.subList(firstLine, endLine)) {
+                        chunk.lineNumbers[chunk.size] = fetchLineNumber(rawFileLine);
+                        chunk.codeLines[chunk.size] = beautifyCodeLine(
+                                StringUtils.deleteFirstWordFromSentence(rawFileLine));
+                        chunk.size++;
+                    }
+                } catch (RuntimeException e) {
+                    chunk.failure = e;
+                }
+                chunks[firstChunk] = chunk;
+            }
+        }
+    }
+
+    /**
+     * Line numbers that were not in ascending order. A line number found again replaces the code of the earlier line
+     * but keeps its position, the lines are executed in file order whatever their numbers.
+     */
+    public static class LineOrder {
+        int duplicateCount;
+        int firstDuplicate;
+        int outOfOrderCount;
+        int firstOutOfOrder;
+
+        void addDuplicate(int lineNumber) {
+            if (duplicateCount++ == 0)
+                firstDuplicate = lineNumber;
+        }
+
+        void addOutOfOrder(int lineNumber) {
+            if (outOfOrderCount++ == 0)
+                firstOutOfOrder = lineNumber;
+        }
+
+        public boolean isAscending() {
+            return duplicateCount == 0 && outOfOrderCount == 0;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder description = new StringBuilder();
+            if (duplicateCount > 0)
+                description.append(duplicateCount).append(" duplicate line numbers, the first is ")
+                        .append(firstDuplicate);
+            if (outOfOrderCount > 0) {
+                if (description.length() > 0)
+                    description.append(", ");
+                description.append(outOfOrderCount).append(" line numbers out of order, the first is ")
+                        .append(firstOutOfOrder);
+            }
+            return description.length() > 0 ? description.toString() : "line numbers in ascending order";
+        }
+    }
+
     public static Integer fetchLineNumber(String rawFileLine) throws NumberFormatException {
         String lineNumberString = StringUtils.getFirstWordOfSentence(rawFileLine);
         return Integer.parseInt(lineNumberString);
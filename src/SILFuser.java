@@ -0,0 +1,117 @@
+/**
+ * Replaces the most common instruction sequences of SIL loops by superinstructions right before a program runs:
+ * - IF variable, relational operator, variable or constant THEN GOTO becomes a BRANCH comparing the slots directly,
+ * - LET I = I + constant becomes an INCREMENT of the slot in place,
+ * - PUSH expression followed by POP variable becomes a MOVE that never touches the operational stack,
+ * - PRINT literal followed by PRINTLN becomes a PRINT_CONCAT, two literals are concatenated up front.
+ * A superinstruction replacing two instructions takes the place of the first one and continues after the second
+ * one, the second instruction is kept so that jumps to its line still work. Errors are reported in the same order
+ * and with the same messages as by the replaced instructions.
+ */
+public class SILFuser {
+
+    private SILFuser() { }
+
+    /**
+     * Fuses a compiled, and possibly optimized, program
+     * @param instructions is the program, it is not modified
+     * @param symbolTable holds the names of the variables used in error messages
+     * @return the program with superinstructions, every instruction keeps its index
+     */
+    public static Instruction[] fuse(Instruction[] instructions, SymbolTable symbolTable) {
+        Instruction[] fusedInstructions = instructions.clone();
+        for (int index = 0; index < instructions.length; index++) {
+            Instruction instruction = instructions[index];
+            Instruction nextInstruction = index + 1 < instructions.length ? instructions[index + 1] : null;
+            Instruction fusedInstruction = switch (instruction.opCode) {
+                case IF -> fuseBranch(instruction);
+                case LET -> fuseIncrement(instruction);
+                case PUSH -> fuseMove(instruction, nextInstruction, index + 2, symbolTable);
+                case PRINT -> fusePrint(instruction, nextInstruction, index + 2);
+                default -> null;
+            };
+            if (fusedInstruction != null)
+                fusedInstructions[index] = fusedInstruction;
+        }
+        return fusedInstructions;
+    }
+
+    private static Instruction fuseBranch(Instruction instruction) {
+        Instruction thenInstruction = instruction.thenInstruction;
+        if (thenInstruction == null || thenInstruction.opCode != OpCode.GOTO
+                || !isVariable(instruction.expression) || isOperator(instruction.rightExpression))
+            return null;
+        Instruction branch = new Instruction(OpCode.BRANCH, instruction.lineNumber);
+        branch.relationalOperator = instruction.relationalOperator;
+        branch.jumpLineNumber = thenInstruction.jumpLineNumber;
+        branch.jumpTarget = thenInstruction.jumpTarget;
+        int[] rightCode = instruction.rightExpression.code;
+        if (rightCode[0] == Expression.VARIABLE) {
+            branch.variableSlots = new int[] { instruction.expression.code[1], rightCode[1] };
+        } else {
+            branch.variableSlots = new int[] { instruction.expression.code[1] };
+            branch.constant = rightCode[1];
+        }
+        branch.declarationsVerified = instruction.expression.declarationsVerified
+                && instruction.rightExpression.declarationsVerified;
+        return branch;
+    }
+
+    private static Instruction fuseIncrement(Instruction instruction) {
+        int slot = instruction.variableSlots[0];
+        int[] code = instruction.expression.code;
+        if (code.length != 5 || (code[4] != '+' && code[4] != '-'))
+            return null;
+        int increment;
+        if (code[0] == Expression.VARIABLE && code[1] == slot && code[2] == Expression.CONSTANT)
+            increment = code[4] == '+' ? code[3] : -code[3];
+        else if (code[4] == '+' && code[0] == Expression.CONSTANT && code[2] == Expression.VARIABLE && code[3] == slot)
+            increment = code[1];
+        else
+            return null;
+        Instruction incrementInstruction = new Instruction(OpCode.INCREMENT, instruction.lineNumber);
+        incrementInstruction.variableSlots = instruction.variableSlots;
+        incrementInstruction.constant = increment;
+        // the slot is both assigned and read, the LET verified both
+        incrementInstruction.declarationsVerified = instruction.declarationsVerified
+                && instruction.expression.declarationsVerified;
+        return incrementInstruction;
+    }
+
+    private static Instruction fuseMove(Instruction instruction, Instruction nextInstruction, int continueIndex,
+                                        SymbolTable symbolTable) {
+        if (nextInstruction == null || nextInstruction.opCode != OpCode.POP)
+            return null;
+        Instruction move = new Instruction(OpCode.MOVE, instruction.lineNumber);
+        move.expression = instruction.expression;
+        move.variableSlots = new int[] { nextInstruction.variableSlots[0] };
+        // the message POP reports for an undeclared variable, with the line number of the POP
+        move.text = symbolTable.nameOf(nextInstruction.variableSlots[0])+" not declared at line "
+                +nextInstruction.lineNumber;
+        move.jumpTarget = continueIndex;
+        move.declarationsVerified = nextInstruction.declarationsVerified;
+        return move;
+    }
+
+    private static Instruction fusePrint(Instruction instruction, Instruction nextInstruction, int continueIndex) {
+        if (instruction.text == null || nextInstruction == null || nextInstruction.opCode != OpCode.PRINTLN)
+            return null;
+        Instruction print = new Instruction(OpCode.PRINT_CONCAT, instruction.lineNumber);
+        if (nextInstruction.text != null) {
+            print.text = instruction.text+nextInstruction.text;
+        } else {
+            print.text = instruction.text;
+            print.expression = nextInstruction.expression;
+        }
+        print.jumpTarget = continueIndex;
+        return print;
+    }
+
+    private static boolean isVariable(Expression expression) {
+        return expression.code.length == 2 && expression.code[0] == Expression.VARIABLE;
+    }
+
+    private static boolean isOperator(Expression expression) {
+        return expression.code.length != 2;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,451 @@
+import javax.tools.*;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Compilation tier that translates a whole compiled SIL program into JVM methods, one per chunk of consecutive
+ * instructions. Variables become local variables of the chunks, GOTO and IF ... THEN GOTO become branches of a
+ * switch over the program counter and GOSUB / RET use an explicit return stack. The generated class is compiled in
+ * memory and loaded as a hidden class so that HotSpot can optimize the program like any other Java method.
+ * Compiling with javac takes more than a second for the first program of a JVM and about a tenth of a second for
+ * the following ones, so the tier only pays off for programs that run for longer than that.
+ * The interpreter stays the reference implementation, programs that can not be translated
+ * (for example because a single instruction makes a method too large for HotSpot to compile) keep running in the
+ * interpreter.
+ */
+public class SILJitCompiler {
+
+    private static final String CLASS_NAME = "SILJitProgram";
+    // largest method HotSpot compiles unless -XX:-DontCompileHugeMethods is given
+    static final int HUGE_METHOD_LIMIT = 8000;
+    // characters of generated source per chunk method, about a third of that in bytes of bytecode
+    private static final int MAX_CHUNK_SOURCE = 12_000;
+
+    private SILJitCompiler() { }
+
+    /**
+     * Translates a compiled program into a hidden class
+     * @param instructions is the compiled program
+     * @param symbolTable holds the names of the variables used in error messages
+     * @return the loaded program or null when the program could not be translated
+     */
+    public static JitProgram compile(Instruction[] instructions, SymbolTable symbolTable) {
+        JavaCompiler javaCompiler = ToolProvider.getSystemJavaCompiler();
+        if (javaCompiler == null) {
+            System.err.println("JIT is not available because the JDK compiler is missing, using the interpreter");
+            return null;
+        }
+        String source = generateSource(instructions, symbolTable);
+        ByteArrayOutputStream classBytes = new ByteArrayOutputStream();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        JavaFileManager fileManager = new ForwardingJavaFileManager<>(
+                javaCompiler.getStandardFileManager(diagnostics, null, null)) {
+            @Override
+            public JavaFileObject getJavaFileForOutput(Location location, String className,
+                                                       JavaFileObject.Kind kind, FileObject sibling) {
+                return new SimpleJavaFileObject(URI.create("bytes:///"+className+".class"), kind) {
+                    @Override
+                    public OutputStream openOutputStream() {
+                        return classBytes;
+                    }
+                };
+            }
+        };
+        JavaFileObject sourceFile = new SimpleJavaFileObject(URI.create("string:///"+CLASS_NAME+".java"),
+                JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return source;
+            }
+        };
+        List<String> options = List.of("-classpath", System.getProperty("java.class.path"), "-g:none");
+        boolean compiled = javaCompiler.getTask(null, fileManager, diagnostics, options, null, List.of(sourceFile))
+                .call();
+        if (!compiled) {
+            List<Diagnostic<? extends JavaFileObject>> errors = diagnostics.getDiagnostics();
+            System.err.println("JIT compilation failed, using the interpreter: "
+                    +(errors.isEmpty() ? "" : errors.get(0).getMessage(null)));
+            return null;
+        }
+        int largestMethodSize = largestMethodSize(classBytes.toByteArray());
+        if (largestMethodSize > HUGE_METHOD_LIMIT) {
+            System.err.println("JIT program has a method of "+largestMethodSize
+                    +" bytes that HotSpot would not compile, using the interpreter");
+            return null;
+        }
+        try {
+            MethodHandles.Lookup programLookup = MethodHandles.lookup()
+                    .defineHiddenClass(classBytes.toByteArray(), true);
+            MethodHandle constructor = programLookup.findConstructor(programLookup.lookupClass(),
+                    MethodType.methodType(void.class));
+            return (JitProgram) constructor.invoke();
+        } catch (Throwable e) {
+            System.err.println("JIT program could not be loaded, using the interpreter: "+e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Reads the size of the bytecode of the largest method of a class file
+     * @param classFile holds the bytes of the class
+     * @return the largest code length of its methods in bytes
+     */
+    static int largestMethodSize(byte[] classFile) {
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(classFile));
+            // magic number, minor and major version
+            in.skipBytes(8);
+            int constantCount = in.readUnsignedShort();
+            String[] names = new String[constantCount];
+            for (int index = 1; index < constantCount; index++) {
+                int tag = in.readUnsignedByte();
+                switch (tag) {
+                    case 1 -> names[index] = in.readUTF();
+                    case 7, 8, 16, 19, 20 -> in.skipBytes(2);
+                    case 15 -> in.skipBytes(3);
+                    case 3, 4, 9, 10, 11, 12, 17, 18 -> in.skipBytes(4);
+                    case 5, 6 -> {
+                        // long and double constants take two entries
+                        in.skipBytes(8);
+                        index++;
+                    }
+                    default -> throw new IOException("Unknown constant pool tag "+tag);
+                }
+            }
+            // access flags, this class and super class, then the interfaces
+            in.skipBytes(6);
+            in.skipBytes(2 * in.readUnsignedShort());
+            int fieldCount = in.readUnsignedShort();
+            for (int field = 0; field < fieldCount; field++) {
+                in.skipBytes(6);
+                int attributeCount = in.readUnsignedShort();
+                for (int attribute = 0; attribute < attributeCount; attribute++) {
+                    in.skipBytes(2);
+                    in.skipBytes(in.readInt());
+                }
+            }
+            int largestSize = 0;
+            int methodCount = in.readUnsignedShort();
+            for (int method = 0; method < methodCount; method++) {
+                in.skipBytes(6);
+                int attributeCount = in.readUnsignedShort();
+                for (int attribute = 0; attribute < attributeCount; attribute++) {
+                    String name = names[in.readUnsignedShort()];
+                    int length = in.readInt();
+                    if (name.equals("Code")) {
+                        // max stack and max locals precede the code length
+                        in.skipBytes(4);
+                        largestSize = Math.max(largestSize, in.readInt());
+                        length -= 8;
+                    }
+                    in.skipBytes(length);
+                }
+            }
+            return largestSize;
+        } catch (IOException e) {
+            throw new IllegalStateException("javac wrote an unreadable class file", e);
+        }
+    }
+
+    /**
+     * Generates the Java source of the program. The instructions are split into chunks of consecutive
+     * instructions, each translated into a method of its own that HotSpot still compiles: methods larger than
+     * 8000 bytes of bytecode are never compiled and would run slower than the interpreter. A chunk keeps the
+     * variables it uses in local variables while it runs and returns the index of the next instruction when the
+     * program leaves it, run dispatches to the chunk holding that instruction.
+     * @param instructions is the compiled program
+     * @param symbolTable holds the names of the variables used in error messages
+     * @return the source of a class implementing JitProgram
+     */
+    static String generateSource(Instruction[] instructions, SymbolTable symbolTable) {
+        List<Integer> chunkStarts = new ArrayList<>();
+        StringBuilder chunkSource = new StringBuilder();
+        StringBuilder instructionSource = new StringBuilder();
+        List<String> chunkSources = new ArrayList<>();
+        for (int index = 0; index < instructions.length; index++) {
+            instructionSource.setLength(0);
+            instructionSource.append("            case ").append(index).append(":\n");
+            generateInstruction(instructionSource, instructions[index], index + 1, symbolTable);
+            if (chunkSource.length() > 0 && chunkSource.length() + instructionSource.length() > MAX_CHUNK_SOURCE) {
+                chunkSources.add(chunkSource.toString());
+                chunkSource.setLength(0);
+            }
+            if (chunkSource.length() == 0)
+                chunkStarts.add(index);
+            chunkSource.append(instructionSource);
+        }
+        chunkSources.add(chunkSource.toString());
+        if (chunkStarts.isEmpty())
+            chunkStarts.add(0);
+        chunkStarts.add(instructions.length);
+
+        StringBuilder source = new StringBuilder();
+        source.append("public final class ").append(CLASS_NAME).append(" implements JitProgram {\n");
+        // every run has variables of its own, the program may run on many threads at once
+        for (int slot = 0; slot < symbolTable.size(); slot++) {
+            source.append("    int v").append(slot).append(";\n");
+            source.append("    boolean d").append(slot).append(";\n");
+        }
+        source.append("    int[] returnStack = new int[16];\n");
+        source.append("    int returnStackSize;\n");
+        source.append("    public void run(ExecutionContext runtime) {\n");
+        source.append("        ").append(CLASS_NAME).append(" program = new ").append(CLASS_NAME).append("();\n");
+        source.append("        int pc = 0;\n");
+        source.append("        while (pc >= 0 && pc < ").append(instructions.length).append(") {\n");
+        generateDispatch(source, "            ", chunkStarts, 0, chunkSources.size());
+        source.append("        }\n");
+        source.append("    }\n");
+        for (int chunk = 0; chunk < chunkSources.size(); chunk++) {
+            int chunkStart = chunkStarts.get(chunk);
+            int chunkEnd = chunkStarts.get(chunk + 1);
+            BitSet slots = new BitSet();
+            for (int index = chunkStart; index < chunkEnd; index++) {
+                collectSlots(instructions[index], slots);
+            }
+            source.append("    private int chunk").append(chunk).append("(ExecutionContext runtime, int pc) {\n");
+            source.append("        IntStack stack = runtime.getOperationalStack();\n");
+            source.append("        int[] returnStack = this.returnStack;\n");
+            source.append("        int returnStackSize = this.returnStackSize;\n");
+            for (int slot = slots.nextSetBit(0); slot >= 0; slot = slots.nextSetBit(slot + 1)) {
+                source.append("        int v").append(slot).append(" = this.v").append(slot).append(";\n");
+                source.append("        boolean d").append(slot).append(" = this.d").append(slot).append(";\n");
+            }
+            source.append("        run:\n");
+            source.append("        while (true) {\n");
+            source.append("            switch (pc) {\n");
+            source.append(chunkSources.get(chunk));
+            // the last instruction falls through to the first one of the next chunk
+            source.append("            case ").append(chunkEnd).append(":\n");
+            source.append("                pc = ").append(chunkEnd).append(";\n");
+            source.append("            default:\n");
+            source.append("                break run;\n");
+            source.append("            }\n");
+            source.append("        }\n");
+            source.append("        this.returnStack = returnStack;\n");
+            source.append("        this.returnStackSize = returnStackSize;\n");
+            for (int slot = slots.nextSetBit(0); slot >= 0; slot = slots.nextSetBit(slot + 1)) {
+                source.append("        this.v").append(slot).append(" = v").append(slot).append(";\n");
+                source.append("        this.d").append(slot).append(" = d").append(slot).append(";\n");
+            }
+            source.append("        return pc;\n");
+            source.append("    }\n");
+        }
+        source.append("}\n");
+        return source.toString();
+    }
+
+    // binary search over the first instructions of the chunks from the first chunk to the end chunk exclusive
+    private static void generateDispatch(StringBuilder source, String indent, List<Integer> chunkStarts,
+                                         int firstChunk, int endChunk) {
+        if (endChunk - firstChunk == 1) {
+            source.append(indent).append("pc = program.chunk").append(firstChunk).append("(runtime, pc);\n");
+            return;
+        }
+        int middleChunk = (firstChunk + endChunk) >>> 1;
+        source.append(indent).append("if (pc < ").append(chunkStarts.get(middleChunk)).append(") {\n");
+        generateDispatch(source, indent+"    ", chunkStarts, firstChunk, middleChunk);
+        source.append(indent).append("} else {\n");
+        generateDispatch(source, indent+"    ", chunkStarts, middleChunk, endChunk);
+        source.append(indent).append("}\n");
+    }
+
+    // the variables an instruction reads, assigns or declares
+    private static void collectSlots(Instruction instruction, BitSet slots) {
+        if (instruction.variableSlots != null) {
+            for (int slot: instruction.variableSlots) {
+                slots.set(slot);
+            }
+        }
+        collectSlots(instruction.expression, slots);
+        collectSlots(instruction.rightExpression, slots);
+        if (instruction.thenInstruction != null)
+            collectSlots(instruction.thenInstruction, slots);
+    }
+
+    private static void collectSlots(Expression expression, BitSet slots) {
+        if (expression == null)
+            return;
+        int[] code = expression.code;
+        for (int i = 0; i < code.length; i++) {
+            if (code[i] == Expression.VARIABLE)
+                slots.set(code[++i]);
+            else if (code[i] == Expression.CONSTANT)
+                i++;
+        }
+    }
+
+    private static void generateInstruction(StringBuilder source, Instruction instruction, int nextIndex,
+                                            SymbolTable symbolTable) {
+        String indent = "                ";
+        int lineNumber = instruction.lineNumber;
+        switch (instruction.opCode) {
+            case INTEGER -> {
+                for (int slot: instruction.variableSlots) {
+                    source.append(indent).append("v").append(slot).append(" = Integer.MIN_VALUE; d")
+                            .append(slot).append(" = true;\n");
+                }
+            }
+            case INPUT -> {
+                for (int slot: instruction.variableSlots) {
+                    generateDeclarationCheck(source, indent, slot,
+                            symbolTable.nameOf(slot)+" variable not declared at "+lineNumber);
+                }
+                source.append(indent).append("{\n");
+                source.append(indent).append("    int[] inputs = runtime.readInputValues(").append(lineNumber)
+                        .append(", ").append(instruction.variableSlots.length).append(");\n");
+                for (int i = 0; i < instruction.variableSlots.length; i++) {
+                    source.append(indent).append("    v").append(instruction.variableSlots[i])
+                            .append(" = inputs[").append(i).append("];\n");
+                }
+                source.append(indent).append("}\n");
+            }
+            case LET -> {
+                int slot = instruction.variableSlots[0];
+                generateDeclarationCheck(source, indent, slot,
+                        symbolTable.nameOf(slot)+" variable not declared at "+lineNumber);
+                source.append(indent).append("v").append(slot).append(" = ")
+                        .append(generateExpression(instruction.expression, symbolTable)).append(";\n");
+            }
+            case PUSH -> source.append(indent).append("stack.push(")
+                    .append(generateExpression(instruction.expression, symbolTable)).append(");\n");
+            case POP -> {
+                int slot = instruction.variableSlots[0];
+                generateDeclarationCheck(source, indent, slot,
+                        symbolTable.nameOf(slot)+" not declared at line "+lineNumber);
+                source.append(indent).append("v").append(slot).append(" = runtime.popOperand();\n");
+            }
+            case IF -> {
+                source.append(indent).append("if (FileParser.computeExpressionResult('")
+                        .append(instruction.relationalOperator).append("', ")
+                        .append(generateExpression(instruction.expression, symbolTable)).append(", ")
+                        .append(generateExpression(instruction.rightExpression, symbolTable)).append(")) {\n");
+                if (instruction.thenInstruction != null)
+                    generateInstruction(source, instruction.thenInstruction, nextIndex, symbolTable);
+                source.append(indent).append("}\n");
+            }
+            case GOTO -> source.append(indent).append("pc = ").append(instruction.jumpTarget).append("; continue;\n");
+            case GOSUB -> {
+                source.append(indent).append("if (returnStackSize == returnStack.length) ")
+                        .append("returnStack = java.util.Arrays.copyOf(returnStack, returnStackSize * 2);\n");
+                source.append(indent).append("returnStack[returnStackSize++] = ").append(nextIndex).append(";\n");
+                source.append(indent).append("pc = ").append(instruction.jumpTarget).append("; continue;\n");
+            }
+            case RET -> {
+                source.append(indent).append("if (returnStackSize == 0) { runtime.fail(")
+                        .append(javaString("RET without GOSUB at "+lineNumber)).append("); return -1; }\n");
+                source.append(indent).append("pc = returnStack[--returnStackSize]; continue;\n");
+            }
+            case PRINT, PRINTLN -> {
+                String method = instruction.opCode == OpCode.PRINT ? "print" : "println";
+                String value = instruction.text != null ? javaString(instruction.text)
+                        : generateExpression(instruction.expression, symbolTable);
+                source.append(indent).append("runtime.").append(method).append("(").append(value).append(");\n");
+            }
+            case END -> source.append(indent).append("return -1;\n");
+            case ERROR -> source.append(indent).append("runtime.fail(").append(javaString(instruction.text))
+                    .append("); return -1;\n");
+            case BRANCH -> {
+                int[] slots = instruction.variableSlots;
+                String rightOperand = slots.length == 2 ? generateVariable(slots[1], symbolTable)
+                        : "("+instruction.constant+")";
+                source.append(indent).append("if (FileParser.computeExpressionResult('")
+                        .append(instruction.relationalOperator).append("', ")
+                        .append(generateVariable(slots[0], symbolTable)).append(", ").append(rightOperand)
+                        .append(")) { pc = ").append(instruction.jumpTarget).append("; continue; }\n");
+            }
+            case INCREMENT -> {
+                int slot = instruction.variableSlots[0];
+                generateDeclarationCheck(source, indent, slot,
+                        symbolTable.nameOf(slot)+" variable not declared at "+lineNumber);
+                source.append(indent).append("v").append(slot).append(" += ").append(instruction.constant)
+                        .append(";\n");
+            }
+            case MOVE -> {
+                int slot = instruction.variableSlots[0];
+                source.append(indent).append("{\n");
+                source.append(indent).append("    int value = ")
+                        .append(generateExpression(instruction.expression, symbolTable)).append(";\n");
+                generateDeclarationCheck(source, indent+"    ", slot, instruction.text);
+                source.append(indent).append("    v").append(slot).append(" = value;\n");
+                source.append(indent).append("}\n");
+                source.append(indent).append("pc = ").append(instruction.jumpTarget).append("; continue;\n");
+            }
+            case PRINT_CONCAT -> {
+                if (instruction.expression == null) {
+                    source.append(indent).append("runtime.println(").append(javaString(instruction.text))
+                            .append(");\n");
+                } else {
+                    source.append(indent).append("runtime.print(").append(javaString(instruction.text)).append(");\n");
+                    source.append(indent).append("runtime.println(")
+                            .append(generateExpression(instruction.expression, symbolTable)).append(");\n");
+                }
+                source.append(indent).append("pc = ").append(instruction.jumpTarget).append("; continue;\n");
+            }
+            default -> source.append(indent).append("runtime.println(\"Syntax error occurred while parsing\");\n");
+        }
+    }
+
+    private static void generateDeclarationCheck(StringBuilder source, String indent, int slot, String message) {
+        source.append(indent).append("if (!d").append(slot).append(") { runtime.fail(")
+                .append(javaString(message)).append("); return -1; }\n");
+    }
+
+    /**
+     * Turns postfix code back into a Java expression, operands are evaluated left to right like in the interpreter
+     * @param expression is the compiled expression
+     * @param symbolTable holds the names of the variables used in error messages
+     * @return the Java expression
+     */
+    private static String generateExpression(Expression expression, SymbolTable symbolTable) {
+        int[] code = expression.code;
+        List<String> operands = new ArrayList<>();
+        for (int i = 0; i < code.length; i++) {
+            if (code[i] == Expression.CONSTANT) {
+                operands.add("("+code[++i]+")");
+            } else if (code[i] == Expression.VARIABLE) {
+                operands.add(generateVariable(code[++i], symbolTable));
+            } else {
+                String rightOperand = operands.remove(operands.size() - 1);
+                String leftOperand = operands.remove(operands.size() - 1);
+                char operator = (char) code[i];
+                operands.add(operator == '/' ? "FileParser.divide("+leftOperand+", "+rightOperand+")"
+                        : "("+leftOperand+" "+operator+" "+rightOperand+")");
+            }
+        }
+        return operands.get(0);
+    }
+
+    private static String generateVariable(int slot, SymbolTable symbolTable) {
+        return "(d"+slot+" ? v"+slot+" : runtime.undeclaredVariable("+javaString(symbolTable.nameOf(slot))+"))";
+    }
+
+    private static String javaString(String text) {
+        StringBuilder literal = new StringBuilder("\"");
+        for (char character: text.toCharArray()) {
+            switch (character) {
+                case '"' -> literal.append("\\\"");
+                case '\\' -> literal.append("\\\\");
+                case '\n' -> literal.append("\\n");
+                case '\r' -> literal.append("\\r");
+                case '\t' -> literal.append("\\t");
+                default -> {
+                    if (character < ' ' || character > '~')
+                        literal.append(String.format("\\u%04x", (int) character));
+                    else
+                        literal.append(character);
+                }
+            }
+        }
+        return literal.append('"').toString();
+    }
+}
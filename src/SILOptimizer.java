@@ -0,0 +1,183 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Optional optimization pass over a compiled SIL program. It runs between compilation and execution and
+ * - folds constant sub expressions using the same applyOp semantics as the executor,
+ * - replaces IF instructions whose condition is constant by their THEN instruction or removes them,
+ * - threads GOTO chains so that every jump goes straight to its final target,
+ * - removes the lines that can never be reached.
+ */
+public class SILOptimizer {
+
+    private SILOptimizer() { }
+
+    /**
+     * Optimizes a compiled program
+     * @param instructions is the compiled program, its instructions may be updated in place
+     * @return the optimized program
+     */
+    public static Instruction[] optimize(Instruction[] instructions) {
+        Instruction[] optimizedInstructions = Arrays.copyOf(instructions, instructions.length);
+        for (int i = 0; i < optimizedInstructions.length; i++) {
+            optimizedInstructions[i] = foldInstruction(optimizedInstructions[i]);
+        }
+        threadJumps(optimizedInstructions);
+        return removeUnreachableInstructions(optimizedInstructions);
+    }
+
+    /**
+     * Folds the expressions of an instruction
+     * @param instruction is the instruction to be folded
+     * @return the folded instruction, null when the instruction has no effect at all
+     */
+    private static Instruction foldInstruction(Instruction instruction) {
+        if (instruction.expression != null)
+            instruction.expression = foldExpression(instruction.expression);
+        if (instruction.rightExpression != null)
+            instruction.rightExpression = foldExpression(instruction.rightExpression);
+        switch (instruction.opCode) {
+            case PRINT, PRINTLN -> {
+                if (instruction.expression != null && isConstant(instruction.expression)) {
+                    instruction.text = String.valueOf(instruction.expression.code[1]);
+                    instruction.expression = null;
+                }
+            }
+            case IF -> {
+                if (instruction.thenInstruction != null)
+                    instruction.thenInstruction = foldInstruction(instruction.thenInstruction);
+                if (isConstant(instruction.expression) && isConstant(instruction.rightExpression)) {
+                    boolean conditionHolds = FileParser.computeExpressionResult(instruction.relationalOperator,
+                            instruction.expression.code[1], instruction.rightExpression.code[1]);
+                    return conditionHolds ? instruction.thenInstruction : null;
+                }
+            }
+        }
+        return instruction;
+    }
+
+    /**
+     * Folds the constant sub expressions of a postfix expression. A division by a constant zero is kept
+     * so that the error is still raised when the line is executed.
+     * @param expression is the expression to be folded
+     * @return the folded expression
+     */
+    static Expression foldExpression(Expression expression) {
+        int[] code = expression.code;
+        // every operand on the simulated stack is the postfix code computing it
+        List<int[]> operands = new ArrayList<>();
+        for (int i = 0; i < code.length; i++) {
+            if (code[i] == Expression.CONSTANT || code[i] == Expression.VARIABLE) {
+                operands.add(new int[] { code[i], code[++i] });
+                continue;
+            }
+            int[] rightOperand = operands.remove(operands.size() - 1);
+            int[] leftOperand = operands.remove(operands.size() - 1);
+            char operator = (char) code[i];
+            if (leftOperand.length == 2 && leftOperand[0] == Expression.CONSTANT
+                    && rightOperand.length == 2 && rightOperand[0] == Expression.CONSTANT
+                    && !(operator == '/' && rightOperand[1] == 0)) {
+                operands.add(new int[] { Expression.CONSTANT,
+                        FileParser.applyOp(operator, rightOperand[1], leftOperand[1]) });
+            } else {
+                int[] operation = Arrays.copyOf(leftOperand, leftOperand.length + rightOperand.length + 1);
+                System.arraycopy(rightOperand, 0, operation, leftOperand.length, rightOperand.length);
+                operation[operation.length - 1] = operator;
+                operands.add(operation);
+            }
+        }
+        return operands.get(0).length < code.length ? new Expression(operands.get(0)) : expression;
+    }
+
+    private static boolean isConstant(Expression expression) {
+        return expression.code.length == 2 && expression.code[0] == Expression.CONSTANT;
+    }
+
+    /**
+     * Points every jump at the end of its chain of GOTO instructions
+     * @param instructions is the program, removed instructions are null
+     */
+    private static void threadJumps(Instruction[] instructions) {
+        for (Instruction instruction: instructions) {
+            if (instruction == null)
+                continue;
+            Instruction jumpInstruction = jumpInstructionOf(instruction);
+            if (jumpInstruction != null)
+                jumpInstruction.jumpTarget = finalJumpTarget(instructions, jumpInstruction.jumpTarget);
+        }
+    }
+
+    // returns the GOTO or GOSUB carried by an instruction, directly or after the THEN of an IF
+    private static Instruction jumpInstructionOf(Instruction instruction) {
+        Instruction jumpInstruction = instruction.opCode == OpCode.IF ? instruction.thenInstruction : instruction;
+        if (jumpInstruction == null)
+            return null;
+        return jumpInstruction.opCode == OpCode.GOTO || jumpInstruction.opCode == OpCode.GOSUB ? jumpInstruction : null;
+    }
+
+    private static int finalJumpTarget(Instruction[] instructions, int target) {
+        // a chain longer than the program is a GOTO loop that never ends, it is kept as it is
+        for (int hops = 0; hops < instructions.length; hops++) {
+            int nextTarget = nextInstruction(instructions, target);
+            if (nextTarget == instructions.length || instructions[nextTarget].opCode != OpCode.GOTO)
+                return nextTarget;
+            target = instructions[nextTarget].jumpTarget;
+        }
+        return target;
+    }
+
+    // the removed instructions are skipped just like a GOTO to a missing line number continues with the next line
+    private static int nextInstruction(Instruction[] instructions, int index) {
+        while (index < instructions.length && instructions[index] == null)
+            index++;
+        return index;
+    }
+
+    /**
+     * Removes the instructions that can not be reached from the first line and renumbers the jump targets
+     * @param instructions is the program, removed instructions are null
+     * @return the program without the unreachable instructions
+     */
+    private static Instruction[] removeUnreachableInstructions(Instruction[] instructions) {
+        boolean[] reachable = new boolean[instructions.length];
+        IntStack pendingIndexes = new IntStack();
+        pendingIndexes.push(0);
+        while (!pendingIndexes.isEmpty()) {
+            int index = nextInstruction(instructions, pendingIndexes.pop());
+            if (index == instructions.length || reachable[index])
+                continue;
+            reachable[index] = true;
+            Instruction instruction = instructions[index];
+            switch (instruction.opCode) {
+                case GOTO -> pendingIndexes.push(instruction.jumpTarget);
+                case END, RET, ERROR -> { }
+                case GOSUB -> {
+                    pendingIndexes.push(instruction.jumpTarget);
+                    pendingIndexes.push(index + 1);
+                }
+                case IF -> {
+                    if (instruction.thenInstruction != null && instruction.thenInstruction.opCode == OpCode.GOTO)
+                        pendingIndexes.push(instruction.thenInstruction.jumpTarget);
+                    pendingIndexes.push(index + 1);
+                }
+                default -> pendingIndexes.push(index + 1);
+            }
+        }
+        // every old index is mapped to the new index of the first instruction kept from there on
+        int[] newIndexes = new int[instructions.length + 1];
+        List<Instruction> keptInstructions = new ArrayList<>();
+        for (int index = 0; index < instructions.length; index++) {
+            newIndexes[index] = keptInstructions.size();
+            if (reachable[index])
+                keptInstructions.add(instructions[index]);
+        }
+        newIndexes[instructions.length] = keptInstructions.size();
+        for (Instruction instruction: keptInstructions) {
+            Instruction jumpInstruction = jumpInstructionOf(instruction);
+            if (jumpInstruction != null)
+                jumpInstruction.jumpTarget = newIndexes[jumpInstruction.jumpTarget];
+        }
+        return keptInstructions.toArray(new Instruction[0]);
+    }
+}
@@ -0,0 +1,187 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Command line options of the SIL parser. Options start with -- and apply to every file given on the command line.
+ */
+public class SILOptions {
+
+    final List<String> fileNames = new ArrayList<>();
+    // runs the SILOptimizer over the compiled program before executing it
+    boolean optimize;
+    // replaces common instruction sequences with superinstructions before running a program
+    boolean fuse = true;
+    // translates the compiled program into JVM bytecode instead of interpreting it
+    boolean jit;
+    // number of files executed concurrently, 1 runs the files one after the other
+    int threads = 1;
+    // executes every file on its own virtual thread
+    boolean virtualThreads;
+    // file receiving the output of the programs instead of the console
+    String outputFile;
+    // file holding the values read by INPUT instructions instead of the console, not used by concurrent runs
+    String inputFile;
+    // directory of the SILProgramCache, no programs are cached when it is null
+    String cacheDirectory;
+    // maximum size of the cache directory in bytes, 0 selects the default size
+    long cacheSize;
+    // profiles the execution of every file, the programs run in the interpreter
+    boolean profile;
+    // file the profile reports are appended to instead of the standard error
+    String profileReport;
+    // loads every file with the MappedSILLoader, large files are always mapped
+    boolean mapped;
+    // reports the load time and the peak heap usage of every file
+    boolean stats;
+    // validates every program before it runs, a program with errors is not run at all
+    boolean validate;
+    // comma separated file with one column per INPUT variable, every program runs once per record in lockstep
+    String columnsFile;
+    // caches the results of pure GOSUB subroutines, the programs run in the interpreter
+    boolean memoize;
+    // number of subroutine results kept by every execution context
+    int memoizeSize = 1024;
+    // file the checkpoints of the running program are written to
+    String checkpointFile;
+    // number of instructions between two checkpoints, 0 takes no periodic checkpoints
+    long checkpointInterval;
+    // line number a checkpoint is taken before, null takes no checkpoints at a line
+    Integer checkpointLine;
+    // checkpoint the program is resumed from instead of starting at its first line
+    String resumeFile;
+    // runs every file again whenever it changes, until the process is stopped
+    boolean watch;
+
+    /**
+     * Parses the command line arguments
+     * @param args are the command line arguments
+     * @return the parsed options
+     */
+    public static SILOptions parse(String[] args) {
+        SILOptions options = new SILOptions();
+        // the value of an option is only consumed once it parsed, a missing or invalid value leaves the following
+        // argument to be read as the next option or file
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--optimize" -> options.optimize = true;
+                case "--jit" -> options.jit = true;
+                case "--no-fuse" -> options.fuse = false;
+                case "--parallel" -> options.threads = Runtime.getRuntime().availableProcessors();
+                case "--threads" -> {
+                    try {
+                        options.threads = Math.max(1, Integer.parseInt(args[i + 1]));
+                        i++;
+                    } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                        System.err.println("--threads expects the number of threads");
+                    }
+                }
+                case "--virtual-threads" -> options.virtualThreads = true;
+                case "--output" -> {
+                    if (i + 1 < args.length)
+                        options.outputFile = args[++i];
+                    else
+                        System.err.println("--output expects a file name");
+                }
+                case "--input" -> {
+                    if (i + 1 < args.length)
+                        options.inputFile = args[++i];
+                    else
+                        System.err.println("--input expects a file name");
+                }
+                case "--cache" -> {
+                    if (i + 1 < args.length)
+                        options.cacheDirectory = args[++i];
+                    else
+                        System.err.println("--cache expects a directory");
+                }
+                case "--cache-size" -> {
+                    try {
+                        options.cacheSize = Long.parseLong(args[i + 1]) << 20;
+                        i++;
+                    } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                        System.err.println("--cache-size expects the maximum cache size in MB");
+                    }
+                }
+                case "--profile" -> options.profile = true;
+                case "--profile-report" -> {
+                    if (i + 1 < args.length)
+                        options.profileReport = args[++i];
+                    else
+                        System.err.println("--profile-report expects a file name");
+                }
+                case "--mapped" -> options.mapped = true;
+                case "--stats" -> options.stats = true;
+                case "--validate" -> options.validate = true;
+                case "--columns" -> {
+                    if (i + 1 < args.length)
+                        options.columnsFile = args[++i];
+                    else
+                        System.err.println("--columns expects a file name");
+                }
+                case "--memoize" -> options.memoize = true;
+                case "--memoize-size" -> {
+                    try {
+                        options.memoizeSize = Math.max(1, Integer.parseInt(args[i + 1]));
+                        options.memoize = true;
+                        i++;
+                    } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                        System.err.println("--memoize-size expects the number of cached subroutine results");
+                    }
+                }
+                case "--checkpoint" -> {
+                    if (i + 1 < args.length)
+                        options.checkpointFile = args[++i];
+                    else
+                        System.err.println("--checkpoint expects a file name");
+                }
+                case "--checkpoint-every" -> {
+                    try {
+                        options.checkpointInterval = Math.max(1, Long.parseLong(args[i + 1]));
+                        i++;
+                    } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                        System.err.println("--checkpoint-every expects the number of instructions");
+                    }
+                }
+                case "--checkpoint-at" -> {
+                    try {
+                        options.checkpointLine = Integer.parseInt(args[i + 1]);
+                        i++;
+                    } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                        System.err.println("--checkpoint-at expects a line number");
+                    }
+                }
+                case "--watch" -> options.watch = true;
+                case "--resume" -> {
+                    if (i + 1 < args.length)
+                        options.resumeFile = args[++i];
+                    else
+                        System.err.println("--resume expects a checkpoint file");
+                }
+                default -> {
+                    if (args[i].startsWith("--"))
+                        System.err.println("Unknown option "+args[i]);
+                    else
+                        options.fileNames.add(args[i]);
+                }
+            }
+        }
+        if (options.checkpointFile != null && options.checkpointInterval == 0 && options.checkpointLine == null)
+            System.err.println("--checkpoint needs --checkpoint-every or --checkpoint-at");
+        else if (options.checkpointFile == null && (options.checkpointInterval > 0 || options.checkpointLine != null))
+            System.err.println("--checkpoint-every and --checkpoint-at need --checkpoint");
+        if (options.inputFile != null && options.isBatch() && !options.watch && options.columnsFile == null)
+            System.err.println("--input is not used by concurrent runs, every file reads its own FILE"
+                    +SILBatchRunner.INPUT_EXTENSION);
+        return options;
+    }
+
+    // profiling, memoizing and checkpoints need the interpreter, the bytecode of the SILJitCompiler is not used
+    boolean runsInInterpreter() {
+        return profile || memoize || checkpointFile != null || resumeFile != null;
+    }
+
+    // files are run as a batch whenever they may execute concurrently
+    boolean isBatch() {
+        return threads > 1 || virtualThreads;
+    }
+}
\ No newline at end of file
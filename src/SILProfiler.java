@@ -0,0 +1,201 @@
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Execution profile of one run of a compiled SIL program, collected when --profile is given.
+ * It counts the executions of every line, the time spent in every kind of instruction, the GOSUB calls of every
+ * sub routine and the maximum depths of the sub routine and operational stacks.
+ * The profile is printed as a report sorted by hot lines and committed as JDK Flight Recorder events,
+ * which are recorded whenever the JVM runs with a flight recording.
+ */
+public class SILProfiler {
+
+    // number of lines listed in the hot line report
+    private static final int HOT_LINE_COUNT = 20;
+    private static final OpCode[] opCodes = OpCode.values();
+
+    private final String fileName;
+    private final Instruction[] instructions;
+    // indexed like the instructions
+    private final long[] hitCounts;
+    // indexed by the instruction a GOSUB jumps to, the last entry counts calls past the end of the program
+    private final long[] goSubCounts;
+    private final long[] opCodeCounts = new long[opCodes.length];
+    private final long[] opCodeNanos = new long[opCodes.length];
+    private int maxSubRoutineDepth;
+    private int maxOperationalStackDepth;
+    private final ProgramEvent programEvent = new ProgramEvent();
+
+    /**
+     * @param fileName is the name of the profiled file
+     * @param instructions is the program that is going to be executed
+     */
+    SILProfiler(String fileName, Instruction[] instructions) {
+        this.fileName = fileName;
+        this.instructions = instructions;
+        hitCounts = new long[instructions.length];
+        goSubCounts = new long[instructions.length + 1];
+        programEvent.begin();
+    }
+
+    /**
+     * Records one executed instruction
+     * @param index is the index of the instruction
+     * @param nanos is the time spent executing the instruction
+     * @param subRoutineDepth is the depth of the sub routine stack after the instruction
+     * @param operationalStackDepth is the depth of the operational stack after the instruction
+     */
+    void recordInstruction(int index, long nanos, int subRoutineDepth, int operationalStackDepth) {
+        hitCounts[index]++;
+        int opCode = instructions[index].opCode.ordinal();
+        opCodeCounts[opCode]++;
+        opCodeNanos[opCode] += nanos;
+        if (subRoutineDepth > maxSubRoutineDepth)
+            maxSubRoutineDepth = subRoutineDepth;
+        if (operationalStackDepth > maxOperationalStackDepth)
+            maxOperationalStackDepth = operationalStackDepth;
+    }
+
+    // records a GOSUB jumping to the instruction with the given index
+    void recordGoSub(int target) {
+        goSubCounts[Math.min(target, instructions.length)]++;
+    }
+
+    private long executedInstructionCount() {
+        long count = 0;
+        for (long opCodeCount: opCodeCounts) {
+            count += opCodeCount;
+        }
+        return count;
+    }
+
+    /**
+     * Prints the profile, hot lines come first
+     * @param report receives the report
+     */
+    void report(PrintStream report) {
+        long executedInstructions = executedInstructionCount();
+        long totalNanos = Arrays.stream(opCodeNanos).sum();
+        report.printf("Profile of %s: %d instructions executed in %.3f ms%n", fileName, executedInstructions,
+                totalNanos / 1e6);
+        report.println("Hot lines:");
+        report.printf("%10s %14s %8s  %s%n", "line", "hits", "%", "instruction");
+        Integer[] indexes = new Integer[instructions.length];
+        for (int i = 0; i < indexes.length; i++) {
+            indexes[i] = i;
+        }
+        Arrays.sort(indexes, Comparator.comparingLong((Integer index) -> hitCounts[index]).reversed());
+        for (int i = 0; i < Math.min(HOT_LINE_COUNT, indexes.length) && hitCounts[indexes[i]] > 0; i++) {
+            Instruction instruction = instructions[indexes[i]];
+            report.printf("%10d %14d %7.2f%%  %s%n", instruction.lineNumber, hitCounts[indexes[i]],
+                    100.0 * hitCounts[indexes[i]] / executedInstructions, instruction.opCode);
+        }
+        report.println("Instructions:");
+        report.printf("%10s %14s %12s %10s%n", "kind", "count", "total ms", "ns/each");
+        for (OpCode opCode: opCodes) {
+            long count = opCodeCounts[opCode.ordinal()];
+            if (count > 0) {
+                report.printf("%10s %14d %12.3f %10.1f%n", opCode, count, opCodeNanos[opCode.ordinal()] / 1e6,
+                        (double) opCodeNanos[opCode.ordinal()] / count);
+            }
+        }
+        report.println("GOSUB calls:");
+        for (int target = 0; target < goSubCounts.length; target++) {
+            if (goSubCounts[target] > 0) {
+                report.printf("%10s %14d%n", target < instructions.length
+                        ? String.valueOf(instructions[target].lineNumber) : "end", goSubCounts[target]);
+            }
+        }
+        report.printf("Max GOSUB depth: %d, max operational stack depth: %d%n", maxSubRoutineDepth,
+                maxOperationalStackDepth);
+    }
+
+    // commits the profile as flight recorder events, the checks keep the cost away when nothing is recorded
+    void commitEvents() {
+        programEvent.end();
+        if (programEvent.shouldCommit()) {
+            programEvent.file = fileName;
+            programEvent.executedInstructions = executedInstructionCount();
+            programEvent.maxSubRoutineDepth = maxSubRoutineDepth;
+            programEvent.maxOperationalStackDepth = maxOperationalStackDepth;
+            programEvent.commit();
+        }
+        for (int index = 0; index < instructions.length; index++) {
+            LineEvent lineEvent = new LineEvent();
+            if (!lineEvent.isEnabled())
+                break;
+            if (hitCounts[index] == 0)
+                continue;
+            lineEvent.file = fileName;
+            lineEvent.lineNumber = instructions[index].lineNumber;
+            lineEvent.instruction = instructions[index].opCode.name();
+            lineEvent.hits = hitCounts[index];
+            lineEvent.goSubCalls = goSubCounts[index];
+            lineEvent.commit();
+        }
+        for (OpCode opCode: opCodes) {
+            InstructionEvent instructionEvent = new InstructionEvent();
+            if (!instructionEvent.isEnabled())
+                break;
+            if (opCodeCounts[opCode.ordinal()] == 0)
+                continue;
+            instructionEvent.file = fileName;
+            instructionEvent.instruction = opCode.name();
+            instructionEvent.count = opCodeCounts[opCode.ordinal()];
+            instructionEvent.totalTime = opCodeNanos[opCode.ordinal()];
+            instructionEvent.commit();
+        }
+    }
+
+    @Name("sil.Program")
+    @Label("SIL Program")
+    @Category("SIL")
+    static class ProgramEvent extends Event {
+        @Label("File")
+        String file;
+        @Label("Executed Instructions")
+        long executedInstructions;
+        @Label("Max GOSUB Depth")
+        int maxSubRoutineDepth;
+        @Label("Max Operational Stack Depth")
+        int maxOperationalStackDepth;
+    }
+
+    @Name("sil.Line")
+    @Label("SIL Line")
+    @Category("SIL")
+    static class LineEvent extends Event {
+        @Label("File")
+        String file;
+        @Label("Line Number")
+        int lineNumber;
+        @Label("Instruction")
+        String instruction;
+        @Label("Hits")
+        long hits;
+        @Label("GOSUB Calls")
+        long goSubCalls;
+    }
+
+    @Name("sil.Instruction")
+    @Label("SIL Instruction Kind")
+    @Category("SIL")
+    static class InstructionEvent extends Event {
+        @Label("File")
+        String file;
+        @Label("Instruction")
+        String instruction;
+        @Label("Count")
+        long count;
+        @Label("Total Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long totalTime;
+    }
+}
\ No newline at end of file
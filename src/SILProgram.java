@@ -0,0 +1,205 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * A compiled SIL program that can be run any number of times, also concurrently. Compiling does all the work that
+ * does not depend on a single run: loading, optimizing, validating, fusing and translating to bytecode.
+ * The program is never modified after compile returns, every run keeps its variables, stacks, input and output
+ * in its own ExecutionContext. Contexts are pooled by the program, so a run allocates nothing once the pool is warm.
+ * <pre>
+ * SILProgram program = SILProgram.compile("sum", sourceLines, new SILOptions());
+ * program.run(output, input);  // from any number of threads
+ * </pre>
+ */
+public final class SILProgram {
+
+    // files of this size or larger are loaded with the MappedSILLoader even without --mapped
+    private static final long MAPPED_LOAD_THRESHOLD = 64L << 20;
+
+    private final String name;
+    final Instruction[] instructions;
+    final SymbolTable symbolTable;
+    // bytecode version of the program, null when the program runs in the interpreter
+    final JitProgram jitProgram;
+    // summaries of the pure subroutines, null unless the results of subroutines are cached
+    final SILSubroutineAnalyzer.Subroutine[] subroutines;
+    // number of subroutine results cached by every ExecutionContext
+    final int subroutineCacheSize;
+    // contexts of finished runs, there are never more than the highest number of concurrent runs
+    private final ConcurrentLinkedQueue<ExecutionContext> idleContexts = new ConcurrentLinkedQueue<>();
+
+    private SILProgram(String name, SILFile silFile, SILOptions options) {
+        if (options.validate) {
+            List<String> errors = silFile.validateInstructions();
+            // all the errors are reported at once and nothing of the program runs
+            if (!errors.isEmpty())
+                throw new SILExecutionException(String.join(System.lineSeparator(), errors));
+        }
+        if (options.fuse)
+            silFile.fuseInstructions();
+        this.name = name;
+        this.instructions = silFile.getInstructions();
+        this.symbolTable = silFile.getSymbolTable();
+        this.subroutines = options.memoize ? SILSubroutineAnalyzer.analyze(instructions) : null;
+        this.subroutineCacheSize = options.memoizeSize;
+        this.jitProgram = options.jit && !options.runsInInterpreter()
+                ? SILJitCompiler.compile(instructions, symbolTable) : null;
+    }
+
+    /**
+     * Compiles a SIL file the way the command line does, including the program cache and the --stats report
+     * @param file is the SIL file
+     * @param options select the loader, the optimizations and the validation
+     * @return the compiled program
+     * @throws IOException when the file can not be read
+     * @throws NumberFormatException when a line does not start with a valid line number
+     * @throws SILExecutionException holding all the errors found by --validate, one per line
+     */
+    public static SILProgram compile(File file, SILOptions options) throws IOException {
+        long loadStart = System.nanoTime();
+        if (options.stats)
+            resetPeakHeapUsage();
+        SILFile silFile = new SILFile();
+        SILProgramCache cache = options.cacheDirectory == null ? null
+                : new SILProgramCache(Path.of(options.cacheDirectory), options.cacheSize);
+        byte[] sourceHash = cache == null ? null : cache.hashOf(file.toPath());
+        boolean cached = cache != null && cache.load(sourceHash, silFile);
+        if (!cached) {
+            loadSILFile(file, silFile, options);
+            if (cache != null)
+                cache.store(sourceHash, silFile);
+        }
+        if (options.stats) {
+            System.err.printf("%s: %d instructions loaded in %.3f ms%s, peak heap %.1f MB%n", file.getName(),
+                    silFile.getInstructions().length, (System.nanoTime() - loadStart) / 1e6,
+                    cached ? " from the cache" : "", peakHeapUsage() / (1024.0 * 1024.0));
+            if (silFile.getLineOrder() != null && !silFile.getLineOrder().isAscending())
+                System.err.println(file.getName()+": "+silFile.getLineOrder());
+        }
+        if (options.optimize) {
+            int instructionCount = silFile.getInstructions().length;
+            silFile.optimizeInstructions();
+            System.err.println(file.getName()+": "+instructionCount+" instructions before optimization, "
+                    +silFile.getInstructions().length+" after");
+        }
+        return new SILProgram(file.getName(), silFile, options);
+    }
+
+    /**
+     * Compiles a program held in memory
+     * @param name names the program in profiles
+     * @param sourceLines are the lines of the program
+     * @param options select the optimizations and the validation
+     * @return the compiled program
+     * @throws NumberFormatException when a line does not start with a valid line number
+     * @throws SILExecutionException holding all the errors found by --validate, one per line
+     */
+    public static SILProgram compile(String name, List<String> sourceLines, SILOptions options) {
+        SILFile silFile = new SILFile();
+        silFile.initializeSILFileState(sourceLines);
+        return compile(name, silFile, options);
+    }
+
+    /**
+     * Compiles a program already loaded into a SILFile, such as the current version of a watched file
+     * @param name names the program in profiles
+     * @param silFile holds the instructions of the program, they are optimized and fused in place
+     * @param options select the optimizations and the validation
+     * @return the compiled program
+     * @throws SILExecutionException holding all the errors found by --validate, one per line
+     */
+    static SILProgram compile(String name, SILFile silFile, SILOptions options) {
+        if (options.optimize)
+            silFile.optimizeInstructions();
+        return new SILProgram(name, silFile, options);
+    }
+
+    private static void loadSILFile(File file, SILFile silFile, SILOptions options) throws IOException {
+        if (options.mapped || file.length() >= MAPPED_LOAD_THRESHOLD) {
+            silFile.initializeSILFileState(file.toPath());
+            return;
+        }
+        List<String> rawFileLines = new ArrayList<>();
+        try (BufferedReader bufferedReader = new BufferedReader(new FileReader(file))) {
+            String line;
+            while ((line = bufferedReader.readLine()) != null) {
+                rawFileLines.add(line);
+            }
+        }
+        silFile.initializeSILFileState(rawFileLines);
+    }
+
+    private static void resetPeakHeapUsage() {
+        for (MemoryPoolMXBean memoryPool: ManagementFactory.getMemoryPoolMXBeans()) {
+            if (memoryPool.getType() == MemoryType.HEAP)
+                memoryPool.resetPeakUsage();
+        }
+    }
+
+    // sum of the peak usage of the heap pools since the last reset
+    private static long peakHeapUsage() {
+        long peakUsage = 0;
+        for (MemoryPoolMXBean memoryPool: ManagementFactory.getMemoryPoolMXBeans()) {
+            if (memoryPool.getType() == MemoryType.HEAP)
+                peakUsage += memoryPool.getPeakUsage().getUsed();
+        }
+        return peakUsage;
+    }
+
+    /**
+     * Runs the program with a pooled ExecutionContext. Errors of the program are printed to its output like on the
+     * command line, the output is flushed once the program stops.
+     * @param output receives everything the program prints
+     * @param input provides the values read by INPUT instructions
+     */
+    public void run(OutputSink output, BufferedInputReader input) {
+        ExecutionContext context = idleContexts.poll();
+        if (context == null)
+            context = new ExecutionContext();
+        context.reset(output, input);
+        try {
+            context.execute(this);
+        } finally {
+            // the context must not keep the output and input of the finished run alive
+            context.reset(null, null);
+            idleContexts.offer(context);
+        }
+    }
+
+    /**
+     * Runs the program from a checkpoint with a pooled ExecutionContext, like run does
+     * @param checkpoint was taken from a run of this program
+     * @param output receives everything the program prints from the checkpoint on
+     * @param input provides the values read by INPUT instructions from the checkpoint on
+     * @throws SILExecutionException when the checkpoint was taken from another program
+     */
+    public void resume(SILCheckpoint checkpoint, OutputSink output, BufferedInputReader input) {
+        ExecutionContext context = idleContexts.poll();
+        if (context == null)
+            context = new ExecutionContext();
+        context.reset(output, input);
+        try {
+            context.resume(this, checkpoint);
+        } finally {
+            context.reset(null, null);
+            idleContexts.offer(context);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getInstructionCount() {
+        return instructions.length;
+    }
+}
\ No newline at end of file
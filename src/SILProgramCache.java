@@ -0,0 +1,319 @@
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * On disk cache of compiled SIL programs. A program is stored in a versioned binary file named after the
+ * SHA-256 hash of its source and the interpreter version, so a later run of the same source loads the
+ * instructions with a single mapped read and skips the SILFileBeautifier and the SILCompiler.
+ * The cache is bounded in size, the least recently used programs are evicted first.
+ * Corrupt or stale cache files are ignored and the program is parsed as usual.
+ */
+public class SILProgramCache {
+
+    // must change whenever Instruction, Expression or OpCode change the way a program is encoded
+    static final int INTERPRETER_VERSION = 1;
+    private static final int MAGIC = 0x53494C43;
+    private static final String EXTENSION = ".silc";
+    private static final int HEADER_SIZE = 20;
+    private static final long DEFAULT_MAX_SIZE = 256L << 20;
+
+    private static final int HAS_VARIABLE_SLOTS = 1;
+    private static final int HAS_EXPRESSION = 2;
+    private static final int HAS_RIGHT_EXPRESSION = 4;
+    private static final int HAS_THEN_INSTRUCTION = 8;
+    private static final int HAS_TEXT = 16;
+
+    private static final OpCode[] opCodes = OpCode.values();
+
+    private final Path directory;
+    private final long maxSize;
+
+    /**
+     * @param directory holds the cache files, it is created when missing
+     * @param maxSize is the total size of the cache files in bytes, 0 selects the default size
+     */
+    public SILProgramCache(Path directory, long maxSize) {
+        this.directory = directory;
+        this.maxSize = maxSize > 0 ? maxSize : DEFAULT_MAX_SIZE;
+    }
+
+    /**
+     * Hashes the content of a source file
+     * @param source is the SIL file
+     * @return the hash of the file
+     * @throws IOException when the file can not be read
+     */
+    public byte[] hashOf(Path source) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+            long size = channel.size();
+            for (long position = 0; position < size; position += Integer.MAX_VALUE) {
+                digest.update(channel.map(FileChannel.MapMode.READ_ONLY, position,
+                        Math.min(Integer.MAX_VALUE, size - position)));
+            }
+        }
+        return digest.digest();
+    }
+
+    private Path pathOf(byte[] hash) {
+        StringBuilder name = new StringBuilder();
+        for (byte hashByte: hash) {
+            name.append(Character.forDigit((hashByte >> 4) & 0xf, 16)).append(Character.forDigit(hashByte & 0xf, 16));
+        }
+        return directory.resolve(name.append("-v").append(INTERPRETER_VERSION).append(EXTENSION).toString());
+    }
+
+    /**
+     * Loads the cached program of a source into a SILFile
+     * @param hash is the hash of the source
+     * @param silFile receives the symbol table and the instructions of the program
+     * @return true when the program was found, false when it must be parsed
+     */
+    public boolean load(byte[] hash, SILFile silFile) {
+        Path path = pathOf(hash);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer content = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (!decode(content, hash, silFile))
+                return false;
+            // the modification time is the last access time used by the eviction
+            Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+            return true;
+        } catch (NoSuchFileException e) {
+            return false;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Ignoring the unreadable cache file "+path.getFileName()+": "+e);
+            return false;
+        }
+    }
+
+    private boolean decode(ByteBuffer content, byte[] hash, SILFile silFile) {
+        try {
+            if (content.remaining() < HEADER_SIZE || content.getInt() != MAGIC
+                    || content.getInt() != INTERPRETER_VERSION || content.getInt() != content.remaining() - 8)
+                return false;
+            long checksum = content.getLong();
+            CRC32 crc = new CRC32();
+            crc.update(content.duplicate());
+            if (crc.getValue() != checksum)
+                return false;
+            byte[] storedHash = new byte[hash.length];
+            content.get(storedHash);
+            if (!MessageDigest.isEqual(storedHash, hash))
+                return false;
+            int firstLineNumber = content.getInt();
+            int lastLineNumber = content.getInt();
+            String[] names = new String[checkedLength(content, 4)];
+            for (int slot = 0; slot < names.length; slot++) {
+                names[slot] = readString(content);
+            }
+            Instruction[] instructions = new Instruction[checkedLength(content, 1)];
+            for (int i = 0; i < instructions.length; i++) {
+                instructions[i] = readInstruction(content);
+            }
+            if (content.hasRemaining())
+                return false;
+            // the SILFile is only filled once the whole program was read
+            SymbolTable symbolTable = silFile.getSymbolTable();
+            for (String name: names) {
+                symbolTable.slotOf(name);
+            }
+            silFile.initializeSILFileState(instructions, firstLineNumber, lastLineNumber);
+            return true;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static Instruction readInstruction(ByteBuffer content) {
+        Instruction instruction = new Instruction(opCodes[content.get()], content.getInt());
+        int fields = content.get();
+        instruction.relationalOperator = content.getChar();
+        instruction.jumpLineNumber = content.getInt();
+        instruction.jumpTarget = content.getInt();
+        if ((fields & HAS_VARIABLE_SLOTS) != 0)
+            instruction.variableSlots = readInts(content);
+        if ((fields & HAS_EXPRESSION) != 0)
+            instruction.expression = new Expression(readInts(content));
+        if ((fields & HAS_RIGHT_EXPRESSION) != 0)
+            instruction.rightExpression = new Expression(readInts(content));
+        if ((fields & HAS_THEN_INSTRUCTION) != 0)
+            instruction.thenInstruction = readInstruction(content);
+        if ((fields & HAS_TEXT) != 0)
+            instruction.text = readString(content);
+        return instruction;
+    }
+
+    private static int[] readInts(ByteBuffer content) {
+        int[] values = new int[checkedLength(content, 4)];
+        content.asIntBuffer().get(values);
+        content.position(content.position() + values.length * 4);
+        return values;
+    }
+
+    private static String readString(ByteBuffer content) {
+        byte[] bytes = new byte[checkedLength(content, 1)];
+        content.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // a corrupt length must not allocate a huge array
+    private static int checkedLength(ByteBuffer content, int elementSize) {
+        int length = content.getInt();
+        if (length < 0 || (long) length * elementSize > content.remaining())
+            throw new BufferUnderflowException();
+        return length;
+    }
+
+    /**
+     * Stores the compiled program of a source, must be called before the program is optimized
+     * @param hash is the hash of the source
+     * @param silFile holds the compiled program
+     */
+    public void store(byte[] hash, SILFile silFile) {
+        try {
+            Files.createDirectories(directory);
+            byte[] body = encode(hash, silFile);
+            CRC32 crc = new CRC32();
+            crc.update(body);
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(INTERPRETER_VERSION).putInt(body.length).putLong(crc.getValue()).flip();
+            // programs running concurrently may store the same source, the complete file is moved into place
+            Path temporaryFile = Files.createTempFile(directory, "store", ".tmp");
+            try {
+                try (FileChannel channel = FileChannel.open(temporaryFile, StandardOpenOption.WRITE)) {
+                    ByteBuffer[] buffers = { header, ByteBuffer.wrap(body) };
+                    while (buffers[1].hasRemaining()) {
+                        channel.write(buffers);
+                    }
+                }
+                Files.move(temporaryFile, pathOf(hash), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                // the eviction does not count temporary files, a failed store must not leave its file behind
+                Files.deleteIfExists(temporaryFile);
+            }
+            evict();
+        } catch (IOException | UncheckedIOException e) {
+            System.err.println("Compiled program could not be cached: "+e);
+        }
+    }
+
+    private static byte[] encode(byte[] hash, SILFile silFile) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream body = new DataOutputStream(bytes);
+        body.write(hash);
+        body.writeInt(silFile.getFirstLineNumber() == null ? 0 : silFile.getFirstLineNumber());
+        body.writeInt(silFile.getLastLineNumber() == null ? 0 : silFile.getLastLineNumber());
+        SymbolTable symbolTable = silFile.getSymbolTable();
+        body.writeInt(symbolTable.size());
+        for (int slot = 0; slot < symbolTable.size(); slot++) {
+            writeString(body, symbolTable.nameOf(slot));
+        }
+        Instruction[] instructions = silFile.getInstructions();
+        body.writeInt(instructions.length);
+        for (Instruction instruction: instructions) {
+            writeInstruction(body, instruction);
+        }
+        body.flush();
+        return bytes.toByteArray();
+    }
+
+    private static void writeInstruction(DataOutputStream body, Instruction instruction) throws IOException {
+        int fields = (instruction.variableSlots != null ? HAS_VARIABLE_SLOTS : 0)
+                | (instruction.expression != null ? HAS_EXPRESSION : 0)
+                | (instruction.rightExpression != null ? HAS_RIGHT_EXPRESSION : 0)
+                | (instruction.thenInstruction != null ? HAS_THEN_INSTRUCTION : 0)
+                | (instruction.text != null ? HAS_TEXT : 0);
+        body.writeByte(instruction.opCode.ordinal());
+        body.writeInt(instruction.lineNumber);
+        body.writeByte(fields);
+        body.writeChar(instruction.relationalOperator);
+        body.writeInt(instruction.jumpLineNumber);
+        body.writeInt(instruction.jumpTarget);
+        if (instruction.variableSlots != null)
+            writeInts(body, instruction.variableSlots);
+        if (instruction.expression != null)
+            writeInts(body, instruction.expression.code);
+        if (instruction.rightExpression != null)
+            writeInts(body, instruction.rightExpression.code);
+        if (instruction.thenInstruction != null)
+            writeInstruction(body, instruction.thenInstruction);
+        if (instruction.text != null)
+            writeString(body, instruction.text);
+    }
+
+    private static void writeInts(DataOutputStream body, int[] values) throws IOException {
+        body.writeInt(values.length);
+        for (int value: values) {
+            body.writeInt(value);
+        }
+    }
+
+    private static void writeString(DataOutputStream body, String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        body.writeInt(bytes.length);
+        body.write(bytes);
+    }
+
+    // deletes the least recently used cache files until the cache fits into its maximum size
+    private void evict() throws IOException {
+        List<Path> cacheFiles = new ArrayList<>();
+        long totalSize = 0;
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file: (Iterable<Path>) files::iterator) {
+                if (file.getFileName().toString().endsWith(EXTENSION)) {
+                    cacheFiles.add(file);
+                    totalSize += sizeOf(file);
+                }
+            }
+        }
+        if (totalSize <= maxSize)
+            return;
+        cacheFiles.sort(Comparator.comparingLong(SILProgramCache::lastModifiedTimeOf));
+        for (Path file: cacheFiles) {
+            if (totalSize <= maxSize)
+                break;
+            long size = sizeOf(file);
+            if (Files.deleteIfExists(file))
+                totalSize -= size;
+        }
+    }
+
+    // another program may evict the same file concurrently, a missing file counts as empty and oldest
+    private static long sizeOf(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static long lastModifiedTimeOf(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+}
\ No newline at end of file
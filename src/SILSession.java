@@ -0,0 +1,56 @@
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One interactive run of a SIL program opened by a SILSessionRunner. Lines sent to the session are read by its
+ * INPUT instructions and everything the program prints comes back as messages, one per flush of its output.
+ * Sending never blocks, the program waits for its input on its own thread.
+ */
+public class SILSession {
+
+    private final QueueInputReader input = new QueueInputReader();
+    private final QueueOutputSink output = new QueueOutputSink();
+    private final Future<?> completion;
+
+    SILSession(SILProgram program, ExecutorService executor) {
+        completion = executor.submit(() -> program.run(output, input));
+    }
+
+    /**
+     * Sends a line to the INPUT instructions of the program
+     * @param line holds the space separated values of one INPUT instruction
+     */
+    public void send(String line) {
+        input.send(line);
+    }
+
+    // ends the input, the program stops with a missing input value at its next INPUT
+    public void closeInput() {
+        input.close();
+    }
+
+    /**
+     * Waits for the next output of the program
+     * @return everything the program printed up to its next INPUT or up to its end
+     * @throws InterruptedException when the waiting thread is interrupted
+     */
+    public byte[] takeOutput() throws InterruptedException {
+        return output.take();
+    }
+
+    /**
+     * Waits for the next output of the program at most for a timeout
+     * @param timeout is the longest time to wait
+     * @param unit is the unit of the timeout
+     * @return the output, null when the program printed nothing in time
+     * @throws InterruptedException when the waiting thread is interrupted
+     */
+    public byte[] pollOutput(long timeout, TimeUnit unit) throws InterruptedException {
+        return output.poll(timeout, unit);
+    }
+
+    public boolean isFinished() {
+        return completion.isDone();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,60 @@
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs interactive SIL sessions, each on its own virtual thread. A session waiting for input is parked and holds no
+ * carrier thread, so tens of thousands of idle sessions are served by the small carrier pool of the JVM, which
+ * can be sized with -Djdk.virtualThreadScheduler.parallelism. On Java versions without virtual threads every
+ * session gets a platform thread with a small stack instead.
+ * <pre>
+ * try (SILSessionRunner runner = new SILSessionRunner()) {
+ *     SILSession session = runner.open(program);
+ *     session.send("41");
+ *     byte[] answer = session.takeOutput();
+ * }
+ * </pre>
+ */
+public class SILSessionRunner implements AutoCloseable {
+
+    // stack size of the platform threads used when virtual threads are not available, programs never recurse
+    private static final long PLATFORM_STACK_SIZE = 256 << 10;
+
+    private final ExecutorService executor;
+    private final boolean virtualThreads;
+
+    public SILSessionRunner() {
+        ExecutorService virtualExecutor = null;
+        try {
+            // looked up reflectively so that the parser still builds and runs on Java versions without them
+            virtualExecutor = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor")
+                    .invoke(null);
+        } catch (ReflectiveOperationException e) {
+            System.err.println("Virtual threads are not supported by this Java version, using platform threads");
+        }
+        virtualThreads = virtualExecutor != null;
+        executor = virtualThreads ? virtualExecutor : Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(null, runnable, "sil-session", PLATFORM_STACK_SIZE);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts a session, the program runs until it ends or waits for its first input
+     * @param program is the compiled program, any number of sessions may run it
+     * @return the session
+     */
+    public SILSession open(SILProgram program) {
+        return new SILSession(program, executor);
+    }
+
+    public boolean usesVirtualThreads() {
+        return virtualThreads;
+    }
+
+    // stops all the sessions, a session waiting for input stops with a missing input value
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,212 @@
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Finds the GOSUB subroutines whose result only depends on the variables they read, so that calls with the same
+ * values can be served from a SubroutineCache. The body of a subroutine is every instruction reachable from its
+ * first line up to its RETs. It is pure when the body
+ * - does not INPUT, PRINT, END or hold a line that could not be compiled,
+ * - always reaches a RET with the operational stack as it found it and never pops values pushed by the caller,
+ * - only calls pure subroutines and is not recursive.
+ * The summary of a pure subroutine lists the slots it reads and the slots it writes. A slot written on some of the
+ * paths to a RET only is listed as read too, a cache hit replays the value it had after the cached call, which is
+ * the one it had before that call when the call did not write it.
+ */
+public class SILSubroutineAnalyzer {
+
+    private static final Subroutine IMPURE = new Subroutine(null, null);
+    // marks the subroutines being analyzed, a call reaching one of them is recursive
+    private static final Subroutine IN_PROGRESS = new Subroutine(null, null);
+    private static final int[] NO_SLOTS = new int[0];
+
+    private final Instruction[] instructions;
+    private final Subroutine[] subroutines;
+
+    private SILSubroutineAnalyzer(Instruction[] instructions) {
+        this.instructions = instructions;
+        this.subroutines = new Subroutine[instructions.length];
+    }
+
+    /**
+     * Summarizes every subroutine called by a GOSUB
+     * @param instructions is the program, superinstructions included
+     * @return the summaries indexed by the first instruction of the subroutines, null for the impure ones
+     */
+    public static Subroutine[] analyze(Instruction[] instructions) {
+        SILSubroutineAnalyzer analyzer = new SILSubroutineAnalyzer(instructions);
+        for (Instruction instruction: instructions) {
+            if (instruction.opCode == OpCode.GOSUB && instruction.jumpTarget < instructions.length)
+                analyzer.analyzeSubroutine(instruction.jumpTarget);
+        }
+        Subroutine[] summaries = analyzer.subroutines;
+        for (int index = 0; index < summaries.length; index++) {
+            if (summaries[index] == IMPURE)
+                summaries[index] = null;
+        }
+        return summaries;
+    }
+
+    private Subroutine analyzeSubroutine(int target) {
+        if (subroutines[target] != null)
+            return subroutines[target] == IN_PROGRESS ? IMPURE : subroutines[target];
+        subroutines[target] = IN_PROGRESS;
+        Subroutine subroutine = followBody(target);
+        subroutines[target] = subroutine;
+        return subroutine;
+    }
+
+    // walks all the paths of a body, every instruction must be reached with the same stack depth. The slots
+    // written on every path reaching an instruction are intersected where paths meet, an instruction is walked again
+    // when the intersection shrinks.
+    private Subroutine followBody(int target) {
+        BitSet reads = new BitSet();
+        BitSet writes = new BitSet();
+        // written on every path reaching a RET, null until a RET is reached
+        BitSet writtenOnAllPaths = null;
+        int[] depths = new int[instructions.length];
+        Arrays.fill(depths, -1);
+        BitSet[] writtenBefore = new BitSet[instructions.length];
+        int[] worklist = new int[16];
+        int worklistSize = 0;
+        worklist[worklistSize++] = target;
+        depths[target] = 0;
+        writtenBefore[target] = new BitSet();
+        while (worklistSize > 0) {
+            int index = worklist[--worklistSize];
+            Instruction instruction = instructions[index];
+            int depth = depths[index];
+            int[] successors;
+            int[] written = NO_SLOTS;
+            switch (instruction.opCode) {
+                case INTEGER -> {
+                    written = instruction.variableSlots;
+                    successors = new int[] { index + 1 };
+                }
+                case LET -> {
+                    addReads(reads, instruction.expression);
+                    written = instruction.variableSlots;
+                    successors = new int[] { index + 1 };
+                }
+                case INCREMENT -> {
+                    reads.set(instruction.variableSlots[0]);
+                    written = instruction.variableSlots;
+                    successors = new int[] { index + 1 };
+                }
+                case MOVE -> {
+                    addReads(reads, instruction.expression);
+                    written = instruction.variableSlots;
+                    successors = new int[] { instruction.jumpTarget };
+                }
+                case PUSH -> {
+                    addReads(reads, instruction.expression);
+                    depth++;
+                    successors = new int[] { index + 1 };
+                }
+                case POP -> {
+                    if (depth == 0)
+                        return IMPURE;
+                    written = instruction.variableSlots;
+                    depth--;
+                    successors = new int[] { index + 1 };
+                }
+                case IF -> {
+                    addReads(reads, instruction.expression);
+                    addReads(reads, instruction.rightExpression);
+                    Instruction thenInstruction = instruction.thenInstruction;
+                    if (thenInstruction == null)
+                        successors = new int[] { index + 1 };
+                    else if (thenInstruction.opCode == OpCode.GOTO)
+                        successors = new int[] { index + 1, thenInstruction.jumpTarget };
+                    else
+                        return IMPURE;
+                }
+                case BRANCH -> {
+                    setAll(reads, instruction.variableSlots);
+                    successors = new int[] { index + 1, instruction.jumpTarget };
+                }
+                case GOTO -> successors = new int[] { instruction.jumpTarget };
+                case GOSUB -> {
+                    if (instruction.jumpTarget >= instructions.length)
+                        return IMPURE;
+                    Subroutine callee = analyzeSubroutine(instruction.jumpTarget);
+                    if (callee == IMPURE)
+                        return IMPURE;
+                    // the slots the callee does not write on all its paths are among the ones it reads
+                    setAll(reads, callee.readSlots);
+                    written = callee.writeSlots;
+                    successors = new int[] { index + 1 };
+                }
+                case RET -> {
+                    if (depth != 0)
+                        return IMPURE;
+                    if (writtenOnAllPaths == null)
+                        writtenOnAllPaths = (BitSet) writtenBefore[index].clone();
+                    else
+                        writtenOnAllPaths.and(writtenBefore[index]);
+                    successors = new int[0];
+                }
+                default -> {
+                    // INPUT, PRINT, PRINTLN, PRINT_CONCAT, END, ERROR and INVALID
+                    return IMPURE;
+                }
+            }
+            setAll(writes, written);
+            BitSet writtenAfter = (BitSet) writtenBefore[index].clone();
+            setAll(writtenAfter, written);
+            for (int successor: successors) {
+                // a body running past the last line ends the program
+                if (successor >= instructions.length)
+                    return IMPURE;
+                if (depths[successor] == -1) {
+                    depths[successor] = depth;
+                    writtenBefore[successor] = (BitSet) writtenAfter.clone();
+                } else if (depths[successor] != depth) {
+                    return IMPURE;
+                } else {
+                    BitSet merged = (BitSet) writtenBefore[successor].clone();
+                    merged.and(writtenAfter);
+                    if (merged.equals(writtenBefore[successor]))
+                        continue;
+                    writtenBefore[successor] = merged;
+                }
+                if (worklistSize == worklist.length)
+                    worklist = Arrays.copyOf(worklist, worklistSize * 2);
+                worklist[worklistSize++] = successor;
+            }
+        }
+        BitSet partialWrites = (BitSet) writes.clone();
+        if (writtenOnAllPaths != null)
+            partialWrites.andNot(writtenOnAllPaths);
+        reads.or(partialWrites);
+        return new Subroutine(reads.stream().toArray(), writes.stream().toArray());
+    }
+
+    private static void addReads(BitSet reads, Expression expression) {
+        int[] code = expression.code;
+        for (int i = 0; i < code.length; i++) {
+            if (code[i] == Expression.VARIABLE)
+                reads.set(code[++i]);
+            else if (code[i] == Expression.CONSTANT)
+                i++;
+        }
+    }
+
+    private static void setAll(BitSet slots, int[] slotsToSet) {
+        for (int slot: slotsToSet) {
+            slots.set(slot);
+        }
+    }
+
+    /**
+     * The variables a pure subroutine reads and writes, in slot order
+     */
+    public static class Subroutine {
+        final int[] readSlots;
+        final int[] writeSlots;
+
+        Subroutine(int[] readSlots, int[] writeSlots) {
+            this.readSlots = readSlots;
+            this.writeSlots = writeSlots;
+        }
+    }
+}
\ No newline at end of file
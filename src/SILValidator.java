@@ -0,0 +1,255 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Checks a whole compiled program before it runs and reports every error it finds at once, each with its line number:
+ * - lines that could not be compiled, such as an IF without a relational operator or THEN, or a literal out of range,
+ * - GOTO and GOSUB targets that are not a line of the program,
+ * - variables used on a reachable line while no path to that line declares them,
+ * - RET without any GOSUB, POP without any PUSH and division by a zero literal.
+ * The declarations are followed along all the paths of the program, an instruction whose variables are declared on
+ * every path reaching it is marked as verified and the runtime does not check its variables again.
+ */
+public class SILValidator {
+
+    private final Instruction[] instructions;
+    private final SymbolTable symbolTable;
+    private final List<String> errors = new ArrayList<>();
+    // indexes of the instructions following a GOSUB, every RET may continue at any of them
+    private final int[] returnIndexes;
+    private final boolean hasPush;
+    // variables declared on every path reaching an instruction, null for the instructions not reached yet
+    private final BitSet[] declaredOnAllPaths;
+    // variables declared on at least one path reaching an instruction
+    private final BitSet[] declaredOnSomePath;
+
+    private SILValidator(Instruction[] instructions, SymbolTable symbolTable) {
+        this.instructions = instructions;
+        this.symbolTable = symbolTable;
+        int[] returnIndexes = new int[instructions.length];
+        int returnIndexCount = 0;
+        boolean hasPush = false;
+        for (int index = 0; index < instructions.length; index++) {
+            if (instructions[index].opCode == OpCode.GOSUB)
+                returnIndexes[returnIndexCount++] = index + 1;
+            hasPush |= instructions[index].opCode == OpCode.PUSH;
+        }
+        this.returnIndexes = Arrays.copyOf(returnIndexes, returnIndexCount);
+        this.hasPush = hasPush;
+        declaredOnAllPaths = new BitSet[instructions.length];
+        declaredOnSomePath = new BitSet[instructions.length];
+    }
+
+    /**
+     * Validates a compiled program that has not been fused yet, the instructions whose variables are always
+     * declared are marked as verified
+     * @param instructions is the program
+     * @param symbolTable holds the names of the variables
+     * @return the error messages in line order, empty when the program is valid
+     */
+    public static List<String> validate(Instruction[] instructions, SymbolTable symbolTable) {
+        SILValidator validator = new SILValidator(instructions, symbolTable);
+        validator.followDeclarations();
+        for (int index = 0; index < instructions.length; index++) {
+            validator.validateInstruction(index);
+        }
+        return validator.errors;
+    }
+
+    // propagates the declarations along the paths of the program until nothing changes any more
+    private void followDeclarations() {
+        if (instructions.length == 0)
+            return;
+        int[] worklist = new int[instructions.length];
+        boolean[] queued = new boolean[instructions.length];
+        int worklistSize = 0;
+        declaredOnAllPaths[0] = new BitSet();
+        declaredOnSomePath[0] = new BitSet();
+        worklist[worklistSize++] = 0;
+        queued[0] = true;
+        while (worklistSize > 0) {
+            int index = worklist[--worklistSize];
+            queued[index] = false;
+            Instruction instruction = instructions[index];
+            BitSet allPaths = declaredOnAllPaths[index];
+            BitSet somePath = declaredOnSomePath[index];
+            if (instruction.opCode == OpCode.INTEGER) {
+                allPaths = (BitSet) allPaths.clone();
+                somePath = (BitSet) somePath.clone();
+                for (int slot: instruction.variableSlots) {
+                    allPaths.set(slot);
+                    somePath.set(slot);
+                }
+            }
+            for (int successor: successorsOf(index)) {
+                if (successor < instructions.length && merge(successor, allPaths, somePath) && !queued[successor]) {
+                    worklist[worklistSize++] = successor;
+                    queued[successor] = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Merges the declarations flowing into an instruction
+     * @return true when the declarations of the instruction changed
+     */
+    private boolean merge(int index, BitSet allPaths, BitSet somePath) {
+        if (declaredOnAllPaths[index] == null) {
+            declaredOnAllPaths[index] = (BitSet) allPaths.clone();
+            declaredOnSomePath[index] = (BitSet) somePath.clone();
+            return true;
+        }
+        BitSet mergedAllPaths = (BitSet) declaredOnAllPaths[index].clone();
+        mergedAllPaths.and(allPaths);
+        BitSet mergedSomePath = (BitSet) declaredOnSomePath[index].clone();
+        mergedSomePath.or(somePath);
+        if (mergedAllPaths.equals(declaredOnAllPaths[index]) && mergedSomePath.equals(declaredOnSomePath[index]))
+            return false;
+        declaredOnAllPaths[index] = mergedAllPaths;
+        declaredOnSomePath[index] = mergedSomePath;
+        return true;
+    }
+
+    private int[] successorsOf(int index) {
+        Instruction instruction = instructions[index];
+        return switch (instruction.opCode) {
+            case GOTO, GOSUB -> new int[] { instruction.jumpTarget };
+            case RET -> returnIndexes;
+            case END, ERROR -> new int[0];
+            case IF -> {
+                Instruction thenInstruction = instruction.thenInstruction;
+                if (thenInstruction != null && thenInstruction.opCode == OpCode.GOTO)
+                    yield new int[] { index + 1, thenInstruction.jumpTarget };
+                yield new int[] { index + 1 };
+            }
+            default -> new int[] { index + 1 };
+        };
+    }
+
+    /**
+     * Runs the checks that only depend on single lines: lines that could not be compiled and jump targets that are
+     * not a line of the program. Used for the lines changed by an edit, when following the declarations through
+     * the whole program would take longer than the edit itself.
+     * @param instructions is the program
+     * @param indexes are the indexes of the lines to be checked, in line order
+     * @return the error messages in the order of the indexes
+     */
+    public static List<String> validateLines(Instruction[] instructions, int[] indexes) {
+        List<String> errors = new ArrayList<>();
+        for (int index: indexes) {
+            validateLine(instructions, index, errors);
+        }
+        return errors;
+    }
+
+    private static void validateLine(Instruction[] instructions, int index, List<String> errors) {
+        Instruction instruction = instructions[index];
+        int lineNumber = instruction.lineNumber;
+        switch (instruction.opCode) {
+            case ERROR -> addError(errors, instruction.text);
+            case INVALID -> addError(errors, "Syntax error occurred while parsing at "+lineNumber);
+            case GOTO, GOSUB -> validateJumpTarget(instructions, instruction, instruction.opCode.name(), lineNumber,
+                    errors);
+            case IF -> {
+                Instruction thenInstruction = instruction.thenInstruction;
+                if (thenInstruction != null && thenInstruction.opCode == OpCode.ERROR)
+                    addError(errors, thenInstruction.text);
+                if (thenInstruction != null && thenInstruction.opCode == OpCode.GOTO)
+                    validateJumpTarget(instructions, thenInstruction, "GOTO", lineNumber, errors);
+            }
+            default -> { }
+        }
+    }
+
+    private void validateInstruction(int index) {
+        Instruction instruction = instructions[index];
+        int lineNumber = instruction.lineNumber;
+        validateLine(instructions, index, errors);
+        // the remaining checks only apply to the lines that may run
+        if (declaredOnAllPaths[index] == null)
+            return;
+        switch (instruction.opCode) {
+            case INPUT -> instruction.declarationsVerified = validateVariables(index, instruction.variableSlots,
+                    " variable not declared at ");
+            case LET -> {
+                instruction.declarationsVerified = validateVariables(index, instruction.variableSlots,
+                        " variable not declared at ");
+                validateExpression(index, instruction.expression);
+            }
+            case PUSH, PRINT, PRINTLN -> validateExpression(index, instruction.expression);
+            case POP -> {
+                instruction.declarationsVerified = validateVariables(index, instruction.variableSlots,
+                        " not declared at line ");
+                if (!hasPush)
+                    addError("POP without PUSH at "+lineNumber);
+            }
+            case IF -> {
+                validateExpression(index, instruction.expression);
+                validateExpression(index, instruction.rightExpression);
+                if (instruction.thenInstruction != null)
+                    validateExpression(index, instruction.thenInstruction.expression);
+            }
+            case RET -> {
+                if (returnIndexes.length == 0)
+                    addError("RET without GOSUB at "+lineNumber);
+            }
+            default -> { }
+        }
+    }
+
+    private void addError(String message) {
+        addError(errors, message);
+    }
+
+    // the same variable used twice on a line is reported once
+    private static void addError(List<String> errors, String message) {
+        if (errors.isEmpty() || !errors.get(errors.size() - 1).equals(message))
+            errors.add(message);
+    }
+
+    private static void validateJumpTarget(Instruction[] instructions, Instruction instruction, String keyword,
+                                           int lineNumber, List<String> errors) {
+        int target = instruction.jumpTarget;
+        if (target >= instructions.length || instructions[target].lineNumber != instruction.jumpLineNumber)
+            addError(errors, keyword+" target "+instruction.jumpLineNumber+" is not a line of the program at "
+                    +lineNumber);
+    }
+
+    /**
+     * Reports the variables no path declares
+     * @return true when all the variables are declared on every path
+     */
+    private boolean validateVariables(int index, int[] slots, String message) {
+        boolean verified = true;
+        for (int slot: slots) {
+            if (!declaredOnSomePath[index].get(slot))
+                addError(symbolTable.nameOf(slot)+message+instructions[index].lineNumber);
+            verified &= declaredOnAllPaths[index].get(slot);
+        }
+        return verified;
+    }
+
+    private void validateExpression(int index, Expression expression) {
+        if (expression == null)
+            return;
+        int[] code = expression.code;
+        boolean verified = true;
+        for (int i = 0; i < code.length; i++) {
+            if (code[i] == Expression.VARIABLE) {
+                int slot = code[++i];
+                if (!declaredOnSomePath[index].get(slot))
+                    addError(symbolTable.nameOf(slot)+" variable not declared at "+instructions[index].lineNumber);
+                verified &= declaredOnAllPaths[index].get(slot);
+            } else if (code[i] == Expression.CONSTANT) {
+                // a zero literal directly followed by a division is always the divisor
+                if (code[i + 1] == 0 && i + 2 < code.length && code[i + 2] == '/')
+                    addError("Cannot divide by zero at "+instructions[index].lineNumber);
+                i++;
+            }
+        }
+        expression.declarationsVerified = verified;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,43 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Buffered input reader over an input stream, by default the standard input of the process.
+ * It replaces the Scanner that used to read the console input of the programs.
+ */
+public class StreamInputReader extends BufferedInputReader {
+
+    // System.in is shared by all the programs, the reader is created when it is first needed
+    private static StreamInputReader consoleInputReader;
+
+    private final InputStream inputStream;
+
+    public StreamInputReader(InputStream inputStream) {
+        super(DEFAULT_BUFFER_SIZE);
+        this.inputStream = inputStream;
+    }
+
+    static synchronized StreamInputReader console() {
+        if (consoleInputReader == null)
+            consoleInputReader = new StreamInputReader(System.in);
+        return consoleInputReader;
+    }
+
+    @Override
+    protected boolean fill() {
+        try {
+            int byteCount = inputStream.read(buffer, 0, buffer.length);
+            position = 0;
+            limit = Math.max(byteCount, 0);
+            return byteCount > 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        inputStream.close();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,39 @@
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Buffered output sink writing to an output stream, by default the standard output of the process.
+ * Unlike System.out it neither synchronizes nor flushes on every PRINT.
+ */
+public class StreamOutputSink extends BufferedOutputSink {
+
+    private final OutputStream outputStream;
+
+    public StreamOutputSink() {
+        this(new FileOutputStream(FileDescriptor.out));
+    }
+
+    public StreamOutputSink(OutputStream outputStream) {
+        super(DEFAULT_BUFFER_SIZE);
+        this.outputStream = outputStream;
+    }
+
+    @Override
+    protected void drain(int requiredSpace) {
+        flush();
+    }
+
+    @Override
+    public void flush() {
+        try {
+            outputStream.write(buffer, 0, position);
+            outputStream.flush();
+            position = 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
\ No newline at end of file
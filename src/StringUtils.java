@@ -1,20 +1,45 @@
 public class StringUtils {
 
     public static String getFirstWordOfSentence(String sentence) {
-        return sentence.split(" ")[0];
+        // a sentence of spaces only has an empty first word as well
+        int wordEnd = sentence.indexOf(' ');
+        return wordEnd < 0 ? sentence : sentence.substring(0, wordEnd);
     }
 
     public static Boolean isValidVariableName(String variableName) {
-        char firstLetter = variableName.charAt(0);
-        Boolean isVariableFirstLetterAppropriate = ((firstLetter >= 'a' && firstLetter <= 'z') ||
-                (firstLetter >= 'A' && firstLetter <= 'Z') || firstLetter == '_' || firstLetter == '$');
-        Boolean areVariableLettersValid = variableName.matches("[a-zA-Z0-9_$]+");
-        return isVariableFirstLetterAppropriate && areVariableLettersValid;
+        return isValidVariableName(variableName, 0, variableName.length());
+    }
+
+    /**
+     * Checks the variable name found in a range of a character sequence without creating a String
+     * @param source holds the variable name
+     * @param start is the index of the first character of the name
+     * @param end is the index following the last character of the name
+     * @return true when the name is a valid variable name
+     */
+    public static boolean isValidVariableName(CharSequence source, int start, int end) {
+        if (start >= end || !isVariableStart(source.charAt(start)))
+            return false;
+        for (int i = start + 1; i < end; i++) {
+            if (!isVariablePart(source.charAt(i)))
+                return false;
+        }
+        return true;
+    }
+
+    public static boolean isVariableStart(char character) {
+        return (character >= 'a' && character <= 'z') || (character >= 'A' && character <= 'Z')
+                || character == '_' || character == '$';
+    }
+
+    public static boolean isVariablePart(char character) {
+        return isVariableStart(character) || (character >= '0' && character <= '9');
     }
 
     public static String deleteFirstWordFromSentence(String actualString) {
         int wordStartPosition = getFirstWordOfSentence(actualString).length();
-        while (actualString.charAt(wordStartPosition) == ' ') { // checks for multiple spaces after first word
+        // checks for multiple spaces after first word, a sentence of a single word leaves nothing
+        while (wordStartPosition < actualString.length() && actualString.charAt(wordStartPosition) == ' ') {
             wordStartPosition += 1;
         }
         return actualString.substring(wordStartPosition);
@@ -0,0 +1,99 @@
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded LRU cache of the results of pure GOSUB subroutines. An entry is keyed on the first instruction of the
+ * subroutine and the values of the variables it reads, and holds the values of the variables it writes once it
+ * returned. The cache belongs to one ExecutionContext and is not thread safe.
+ */
+public class SubroutineCache {
+
+    private final LinkedHashMap<CallKey, int[]> entries;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * @param maximumSize is the number of entries kept, the least recently used entry is evicted beyond it
+     */
+    public SubroutineCache(int maximumSize) {
+        // access order turns the LinkedHashMap into an LRU list
+        entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<CallKey, int[]> eldest) {
+                if (size() <= maximumSize)
+                    return false;
+                evictions++;
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Looks up a call
+     * @param target is the index of the first instruction of the subroutine
+     * @param readValues are the values of the variables the subroutine reads
+     * @return the values of the variables the subroutine writes, null when the call is not cached
+     */
+    int[] lookup(int target, int[] readValues) {
+        int[] writeValues = entries.get(new CallKey(target, readValues));
+        if (writeValues == null)
+            misses++;
+        else
+            hits++;
+        return writeValues;
+    }
+
+    void store(int target, int[] readValues, int[] writeValues) {
+        entries.put(new CallKey(target, readValues), writeValues);
+    }
+
+    void clear() {
+        entries.clear();
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    @Override
+    public String toString() {
+        return "GOSUB cache: "+hits+" hits, "+misses+" misses, "+evictions+" evictions, "+entries.size()+" entries";
+    }
+
+    private static class CallKey {
+        private final int target;
+        private final int[] readValues;
+        private final int hash;
+
+        CallKey(int target, int[] readValues) {
+            this.target = target;
+            this.readValues = readValues;
+            this.hash = 31 * target + Arrays.hashCode(readValues);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof CallKey && ((CallKey) other).target == target
+                    && Arrays.equals(((CallKey) other).readValues, readValues);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
\ No newline at end of file
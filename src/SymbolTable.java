@@ -0,0 +1,94 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class assigns a slot number to every variable name found while compiling a SIL file.
+ * Names are only hashed at load time, the running program addresses its variables by slot.
+ * Lookups take a range of any character sequence so that names can be resolved straight from the source
+ * of a mapped file, a String is only created the first time a name is seen.
+ */
+public class SymbolTable {
+
+    // open addressing table holding slot + 1 for every used entry, its length is always a power of two
+    private int[] table = new int[16];
+    private int[] hashes = new int[16];
+    private final List<String> names = new ArrayList<>();
+
+    /**
+     * Returns the slot of a variable, a new slot is assigned the first time a name is seen
+     * @param name is the variable name
+     * @return the slot number of the variable
+     */
+    public int slotOf(String name) {
+        return slotOf(name, 0, name.length());
+    }
+
+    /**
+     * Returns the slot of the variable whose name is found in a range of a character sequence
+     * @param source holds the variable name
+     * @param start is the index of the first character of the name
+     * @param end is the index following the last character of the name
+     * @return the slot number of the variable
+     */
+    public int slotOf(CharSequence source, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + source.charAt(i);
+        }
+        int mask = table.length - 1;
+        int index = mix(hash) & mask;
+        while (table[index] != 0) {
+            int slot = table[index] - 1;
+            if (hashes[index] == hash && contentEquals(names.get(slot), source, start, end))
+                return slot;
+            index = (index + 1) & mask;
+        }
+        int slot = names.size();
+        names.add(source.subSequence(start, end).toString());
+        table[index] = slot + 1;
+        hashes[index] = hash;
+        // the table is kept at most half full so that probe sequences stay short
+        if (names.size() * 2 > table.length)
+            resize();
+        return slot;
+    }
+
+    private static int mix(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private static boolean contentEquals(String name, CharSequence source, int start, int end) {
+        if (name.length() != end - start)
+            return false;
+        for (int i = 0; i < name.length(); i++) {
+            if (name.charAt(i) != source.charAt(start + i))
+                return false;
+        }
+        return true;
+    }
+
+    private void resize() {
+        int[] oldTable = table;
+        int[] oldHashes = hashes;
+        table = new int[oldTable.length * 2];
+        hashes = new int[oldTable.length * 2];
+        int mask = table.length - 1;
+        for (int i = 0; i < oldTable.length; i++) {
+            if (oldTable[i] == 0)
+                continue;
+            int index = mix(oldHashes[i]) & mask;
+            while (table[index] != 0)
+                index = (index + 1) & mask;
+            table[index] = oldTable[i];
+            hashes[index] = oldHashes[i];
+        }
+    }
+
+    public String nameOf(int slot) {
+        return names.get(slot);
+    }
+
+    public int size() {
+        return names.size();
+    }
+}
\ No newline at end of file
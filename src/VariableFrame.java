@@ -0,0 +1,76 @@
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Slot indexed storage for the variables of a running SIL program.
+ * Values are kept unboxed in an int array and the DECLARED / INITIALIZED state of every slot in bit sets,
+ * so reading or assigning a variable is a single array access that creates no garbage.
+ */
+public class VariableFrame {
+
+    final int[] values;
+    private final SymbolTable symbolTable;
+    private final BitSet declared;
+    private final BitSet initialized;
+
+    VariableFrame(SymbolTable symbolTable) {
+        int slotCount = symbolTable.size();
+        this.symbolTable = symbolTable;
+        values = new int[slotCount];
+        declared = new BitSet(slotCount);
+        initialized = new BitSet(slotCount);
+    }
+
+    String nameOf(int slot) {
+        return symbolTable.nameOf(slot);
+    }
+
+    void declare(int slot) {
+        values[slot] = Integer.MIN_VALUE;
+        declared.set(slot);
+        initialized.clear(slot);
+    }
+
+    // forgets all the variables, as before the first line of a program runs
+    void clear() {
+        Arrays.fill(values, 0);
+        declared.clear();
+        initialized.clear();
+    }
+
+    boolean isDeclared(int slot) {
+        return declared.get(slot);
+    }
+
+    boolean isInitialized(int slot) {
+        return initialized.get(slot);
+    }
+
+    // the DECLARED and INITIALIZED bits of all the slots, the values are read from the values array
+    long[] declaredSlots() {
+        return declared.toLongArray();
+    }
+
+    long[] initializedSlots() {
+        return initialized.toLongArray();
+    }
+
+    /**
+     * Replaces all the variables with the ones of a checkpoint
+     * @param values are the values of all the slots
+     * @param declaredSlots are the DECLARED bits of the slots
+     * @param initializedSlots are the INITIALIZED bits of the slots
+     */
+    void restore(int[] values, long[] declaredSlots, long[] initializedSlots) {
+        System.arraycopy(values, 0, this.values, 0, this.values.length);
+        declared.clear();
+        declared.or(BitSet.valueOf(declaredSlots));
+        initialized.clear();
+        initialized.or(BitSet.valueOf(initializedSlots));
+    }
+
+    void assign(int slot, int value) {
+        values[slot] = value;
+        initialized.set(slot);
+    }
+}
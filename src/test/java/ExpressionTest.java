@@ -0,0 +1,80 @@
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Evaluation of the postfix code of expressions, and that it allocates nothing once the operand stack has grown
+ */
+class ExpressionTest {
+
+    // enough evaluations for the JIT to compile evaluate before the allocations are counted
+    private static final int WARMUP_ITERATIONS = 200_000;
+    private static final int MEASURED_ITERATIONS = 1_000_000;
+    private static final int MEASURED_ROUNDS = 5;
+
+    @Test
+    void evaluatesWithThePrecedenceOfTheGrammar() {
+        SymbolTable symbolTable = new SymbolTable();
+        Expression expression = expressionOf("LET C = A * B + 7 - (A - B) / 2", symbolTable);
+        VariableFrame variables = variablesOf(symbolTable, 4, 5);
+        IntStack stack = new IntStack();
+        assertEquals(4 * 5 + 7 - (4 - 5) / 2, expression.evaluate(variables, stack));
+        assertEquals(0, stack.size());
+    }
+
+    @Test
+    void steadyStateEvaluationAllocatesNothing() {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        SymbolTable symbolTable = new SymbolTable();
+        Expression verified = expressionOf("LET C = A * B + 7 - (A - B) / 2", symbolTable);
+        Expression checked = expressionOf("LET C = (A + 3) * (B - 1) / 2", symbolTable);
+        verified.declarationsVerified = true;
+        VariableFrame variables = variablesOf(symbolTable, 4, 5);
+        // PUSH and POP share the operand stack with the evaluations
+        IntStack stack = new IntStack(2);
+        long sum = evaluate(verified, checked, variables, stack, WARMUP_ITERATIONS);
+        long threadId = Thread.currentThread().getId();
+        // the bytes counted by reading the counter twice, subtracted from the measurement
+        long before = threads.getThreadAllocatedBytes(threadId);
+        long overhead = threads.getThreadAllocatedBytes(threadId) - before;
+        // the JVM may allocate once in a round, when it compiles or deoptimizes the loop, an evaluation allocating
+        // anything would allocate in every round
+        long allocated = Long.MAX_VALUE;
+        for (int round = 0; round < MEASURED_ROUNDS && allocated > 0; round++) {
+            before = threads.getThreadAllocatedBytes(threadId);
+            sum += evaluate(verified, checked, variables, stack, MEASURED_ITERATIONS);
+            allocated = Math.min(allocated, threads.getThreadAllocatedBytes(threadId) - before - overhead);
+            assertEquals(0, sum % (27 + 14));
+        }
+        assertEquals(0, allocated, "bytes allocated by "+MEASURED_ITERATIONS+" evaluations");
+    }
+
+    private static long evaluate(Expression verified, Expression checked, VariableFrame variables, IntStack stack,
+                                 int iterations) {
+        long sum = 0;
+        for (int i = 0; i < iterations; i++) {
+            stack.push(i);
+            sum += verified.evaluate(variables, stack) + checked.evaluate(variables, stack);
+            sum += stack.pop() - i;
+        }
+        return sum;
+    }
+
+    private static Expression expressionOf(String code, SymbolTable symbolTable) {
+        return SILCompiler.compileCodeLine(10, code, symbolTable).expression;
+    }
+
+    // declares all the variables of the expressions and assigns A and B
+    private static VariableFrame variablesOf(SymbolTable symbolTable, int a, int b) {
+        VariableFrame variables = new VariableFrame(symbolTable);
+        for (int slot = 0; slot < symbolTable.size(); slot++) {
+            variables.declare(slot);
+        }
+        variables.assign(symbolTable.slotOf("A"), a);
+        variables.assign(symbolTable.slotOf("B"), b);
+        return variables;
+    }
+}
\ No newline at end of file
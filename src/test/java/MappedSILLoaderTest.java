@@ -0,0 +1,166 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * The MappedSILLoader must build the program the SILFileBeautifier and the SILCompiler build from the lines of the
+ * same file, and fail the same way on the lines they reject
+ */
+class MappedSILLoaderTest {
+
+    @TempDir
+    Path directory;
+
+    static String[] samples() {
+        return SILSamplesTest.samples();
+    }
+
+    @ParameterizedTest
+    @MethodSource("samples")
+    void loadsEverySampleLikeTheSequentialLoader(String sample) throws IOException {
+        assertSameProgram(SILSamplesTest.sampleFile(sample+".sil"));
+    }
+
+    @Test
+    void loadsWindowsLineEndings() throws IOException {
+        assertSameProgram(write("10 INTEGER A\r\n20 LET A = 4 * 5\r\n30 PRINTLN A\r\n"));
+    }
+
+    @Test
+    void loadsCarriageReturnLineEndings() throws IOException {
+        assertSameProgram(write("10 INTEGER A\r20 LET A = 4 * 5\r30 PRINTLN A\r"));
+    }
+
+    @Test
+    void loadsMixedLineEndings() throws IOException {
+        assertSameProgram(write("10 INTEGER A\r20 LET A = 4 * 5\r\n30 PRINTLN A\n40 END"));
+    }
+
+    @Test
+    void rejectsTheEmptyLineBetweenALineFeedAndACarriageReturnLikeTheSequentialLoader() throws IOException {
+        assertSameFailure(write("10 INTEGER A\n\r20 LET A = 4\n"));
+    }
+
+    @Test
+    void loadsLineEndingsAcrossWindowBoundaries() throws IOException {
+        String source = "10 INTEGER A\r20 LET A = 4 * 5\r\n30 PRINTLN A\n40 PRINTLN A + 1\r\n50 END\r";
+        Path file = write(source);
+        // every window size puts a boundary on another byte, between the two bytes of a CRLF as well
+        for (int windowSize = 20; windowSize <= source.length(); windowSize++) {
+            assertSameProgram(file, windowSize);
+        }
+    }
+
+    @Test
+    void compilesALineHoldingOnlyItsNumberLikeTheSequentialLoader() throws IOException {
+        assertSameProgram(write("10 INTEGER A\n20\n30 PRINTLN A\n"));
+    }
+
+    @Test
+    void compilesALineHoldingItsNumberAndSpacesLikeTheSequentialLoader() throws IOException {
+        assertSameProgram(write("10 INTEGER A\n20   \n30 PRINTLN A"));
+    }
+
+    @Test
+    void rejectsALineOfSpacesLikeTheSequentialLoader() throws IOException {
+        assertSameFailure(write("10 INTEGER A\n   \n30 PRINTLN A\n"));
+    }
+
+    @Test
+    void loadsALastLineWithoutLineEnding() throws IOException {
+        assertSameProgram(write("10 INTEGER A\n20 LET A = 4\n30 PRINTLN A"));
+    }
+
+    @Test
+    void keepsTheCodeOfTheLastLineOfALineNumberWrittenTwice() throws IOException {
+        assertSameProgram(write("10 INTEGER A\n20 LET A = 4\n20 LET A = 5\n30 PRINTLN A\n"));
+    }
+
+    @Test
+    void rejectsAnEmptyLineLikeTheSequentialLoader() throws IOException {
+        assertSameFailure(write("10 INTEGER A\n\n20 LET A = 4\n"));
+    }
+
+    @Test
+    void rejectsAnEmptyLastLineLikeTheSequentialLoader() throws IOException {
+        assertSameFailure(write("10 INTEGER A\n20 LET A = 4\n\n"));
+    }
+
+    @Test
+    void rejectsALineStartingWithASpaceLikeTheSequentialLoader() throws IOException {
+        assertSameFailure(write("10 INTEGER A\n 20 LET A = 4\n"));
+    }
+
+    private Path write(String source) throws IOException {
+        return Files.writeString(directory.resolve("program.sil"), source);
+    }
+
+    private static void assertSameProgram(Path file) throws IOException {
+        SILFile sequential = new SILFile();
+        sequential.initializeSILFileState(Files.readAllLines(file));
+        SILFile mapped = new SILFile();
+        mapped.initializeSILFileState(file);
+        assertEquals(describe(sequential), describe(mapped));
+    }
+
+    private static void assertSameProgram(Path file, int windowSize) throws IOException {
+        SILFile sequential = new SILFile();
+        sequential.initializeSILFileState(Files.readAllLines(file));
+        SILFile mapped = new SILFile();
+        MappedSILLoader loader = new MappedSILLoader(mapped.getSymbolTable(), windowSize);
+        loader.load(file);
+        LineTable lines = loader.getLines();
+        mapped.initializeSILFileState(loader.getInstructions(), lines.lineNumberAt(0),
+                lines.lineNumberAt(lines.size() - 1));
+        assertEquals(describe(sequential), describe(mapped), "window of "+windowSize+" bytes");
+    }
+
+    private static void assertSameFailure(Path file) throws IOException {
+        NumberFormatException sequential = assertThrows(NumberFormatException.class,
+                () -> new SILFile().initializeSILFileState(Files.readAllLines(file)));
+        NumberFormatException mapped = assertThrows(NumberFormatException.class,
+                () -> new SILFile().initializeSILFileState(file));
+        assertEquals(sequential.getMessage(), mapped.getMessage());
+    }
+
+    // the variables and every field of the instructions that the interpreter reads
+    private static String describe(SILFile silFile) {
+        StringBuilder description = new StringBuilder();
+        SymbolTable symbolTable = silFile.getSymbolTable();
+        for (int slot = 0; slot < symbolTable.size(); slot++) {
+            description.append(symbolTable.nameOf(slot)).append(' ');
+        }
+        description.append(silFile.getFirstLineNumber()).append(' ').append(silFile.getLastLineNumber()).append('\n');
+        for (Instruction instruction: silFile.getInstructions()) {
+            describe(instruction, description);
+            description.append('\n');
+        }
+        return description.toString();
+    }
+
+    private static void describe(Instruction instruction, StringBuilder description) {
+        if (instruction == null) {
+            description.append("null");
+            return;
+        }
+        description.append(instruction.lineNumber).append(' ').append(instruction.opCode)
+                .append(' ').append(Arrays.toString(instruction.variableSlots))
+                .append(' ').append(instruction.expression == null ? null
+                        : Arrays.toString(instruction.expression.code))
+                .append(' ').append((int) instruction.relationalOperator)
+                .append(' ').append(instruction.rightExpression == null ? null
+                        : Arrays.toString(instruction.rightExpression.code))
+                .append(' ').append(instruction.jumpLineNumber).append(' ').append(instruction.jumpTarget)
+                .append(' ').append(instruction.constant).append(' ').append(instruction.text).append(" THEN ");
+        describe(instruction.thenInstruction, description);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,54 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Concurrent runs of several files: every file reads its own input and the outputs come in the order of the files
+ */
+class SILBatchRunnerTest {
+
+    private static final List<String> ADDITION = List.of("10 INTEGER X, Y", "20 INPUT X, Y", "30 PRINTLN X + Y",
+            "40 END");
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void everyFileReadsItsOwnInput() throws IOException {
+        Path first = program("first.sil", "3 4");
+        Path second = program("second.sil", "10 20");
+        Path third = program("third.sil", "-1 1");
+        assertEquals("7\n30\n0\n", run(first, second, third));
+    }
+
+    @Test
+    void fileWithoutInputDoesNotStopTheOthers() throws IOException {
+        Path first = program("first.sil", "3 4");
+        Path second = Files.write(directory.resolve("second.sil"), ADDITION);
+        Path third = program("third.sil", "10 20");
+        assertEquals("7\nLine 20 missing input value\n30\n", run(first, second, third));
+    }
+
+    private Path program(String fileName, String input) throws IOException {
+        Path file = Files.write(directory.resolve(fileName), ADDITION);
+        Files.writeString(directory.resolve(fileName+SILBatchRunner.INPUT_EXTENSION), input+"\n");
+        return file;
+    }
+
+    private static String run(Path... files) {
+        SILOptions options = new SILOptions();
+        options.threads = files.length;
+        for (Path file: files) {
+            options.fileNames.add(file.toString());
+        }
+        MemoryOutputSink output = new MemoryOutputSink();
+        SILBatchRunner.run(options, output);
+        return output.toString();
+    }
+}
\ No newline at end of file
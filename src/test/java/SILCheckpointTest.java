@@ -0,0 +1,60 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * A checkpoint must only resume in the program it was taken from, the fingerprint has to tell apart programs that
+ * differ in any field of an instruction
+ */
+class SILCheckpointTest {
+
+    @Test
+    void sameProgramHasTheSameFingerprint() {
+        assertEquals(fingerprintOf("20 LET A = 1"), fingerprintOf("20 LET A = 1"));
+    }
+
+    @Test
+    void fingerprintCoversTheExpressions() {
+        assertNotEquals(fingerprintOf("20 LET A = 1"), fingerprintOf("20 LET A = 2"));
+        assertNotEquals(fingerprintOf("20 LET A = B + 1"), fingerprintOf("20 LET A = B - 1"));
+    }
+
+    @Test
+    void fingerprintCoversTheVariables() {
+        assertNotEquals(fingerprintOf("20 LET A = B"), fingerprintOf("20 LET B = A"));
+        assertNotEquals(fingerprintOf("20 INPUT A, B"), fingerprintOf("20 INPUT B, A"));
+    }
+
+    @Test
+    void fingerprintCoversTheConditions() {
+        assertNotEquals(fingerprintOf("20 IF A < 1 THEN PRINTLN A"), fingerprintOf("20 IF A > 1 THEN PRINTLN A"));
+        assertNotEquals(fingerprintOf("20 IF A < 1 THEN PRINTLN A"), fingerprintOf("20 IF A < 1 THEN PRINTLN B"));
+    }
+
+    @Test
+    void fingerprintCoversTheTexts() {
+        assertNotEquals(fingerprintOf("20 PRINTLN \"a\""), fingerprintOf("20 PRINTLN \"b\""));
+    }
+
+    @Test
+    void checkpointOfAnotherProgramIsRejected() {
+        SILProgram taken = compile("20 LET A = 1");
+        SILCheckpoint checkpoint = new SILCheckpoint(SILCheckpoint.fingerprintOf(taken), 1, new int[2],
+                new long[0], new long[0], new int[0], new int[0]);
+        SILProgram resumed = compile("20 LET A = 2");
+        assertThrows(SILExecutionException.class,
+                () -> resumed.resume(checkpoint, new MemoryOutputSink(), null));
+    }
+
+    private static long fingerprintOf(String line) {
+        return SILCheckpoint.fingerprintOf(compile(line));
+    }
+
+    private static SILProgram compile(String line) {
+        return SILProgram.compile("program", List.of("10 INTEGER A, B", line, "30 END"), new SILOptions());
+    }
+}
\ No newline at end of file
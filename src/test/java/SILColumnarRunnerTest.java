@@ -0,0 +1,94 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Every record of a columnar run prints what the interpreter prints for that record alone, an error of one record
+ * must not change the output of the others
+ */
+class SILColumnarRunnerTest {
+
+    private static final List<String> DIVISIONS = List.of("10 INTEGER A, B, C", "20 INPUT A, B, C",
+            "30 PRINTLN A + 100 / B", "40 IF A > 60 / C THEN PRINTLN \"big\"", "50 PRINTLN A");
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void divisionByZeroStopsOnlyItsRecord() {
+        Map<String, int[]> columns = new LinkedHashMap<>();
+        columns.put("A", new int[] {10, 7, 9, 100});
+        columns.put("B", new int[] {2, 0, 3, 5});
+        columns.put("C", new int[] {0, 1, 1, 1});
+        assertEquals(lines("60", "Cannot divide by zero", "Cannot divide by zero", "42", "9", "120", "big", "100"),
+                run(DIVISIONS, columns));
+    }
+
+    @Test
+    void divisionByZeroStopsOnlyItsRecordInEveryBlock() {
+        int recordCount = 3 * SILColumnarRunner.BLOCK_SIZE;
+        int[] a = new int[recordCount];
+        int[] b = new int[recordCount];
+        int[] c = new int[recordCount];
+        StringBuilder expected = new StringBuilder();
+        for (int record = 0; record < recordCount; record++) {
+            a[record] = record;
+            b[record] = record % 3 == 0 ? 0 : 1;
+            c[record] = record % 5 == 0 ? 0 : 2;
+            if (b[record] == 0) {
+                expected.append(lines("Cannot divide by zero"));
+            } else {
+                expected.append(lines(String.valueOf(record + 100)));
+                if (c[record] == 0)
+                    expected.append(lines("Cannot divide by zero"));
+                else
+                    expected.append(record > 30 ? lines("big", String.valueOf(record)) : lines(String.valueOf(record)));
+            }
+        }
+        Map<String, int[]> columns = new LinkedHashMap<>();
+        columns.put("A", a);
+        columns.put("B", b);
+        columns.put("C", c);
+        assertEquals(expected.toString(), run(DIVISIONS, columns));
+    }
+
+    @Test
+    void validateStopsTheProgramBeforeAnyRecord() throws IOException {
+        SILOptions options = new SILOptions();
+        options.validate = true;
+        options.columnsFile = Files.writeString(directory.resolve("columns.csv"), "A\n1\n2\n").toString();
+        options.fileNames.add(Files.write(directory.resolve("program.sil"),
+                List.of("10 INTEGER A", "20 INPUT A", "30 GOTO 90")).toString());
+        MemoryOutputSink output = new MemoryOutputSink();
+        SILColumnarRunner.run(options, output);
+        SILFile silFile = new SILFile();
+        silFile.initializeSILFileState(Path.of(options.fileNames.get(0)));
+        assertEquals(lines(String.join(System.lineSeparator(), silFile.validateInstructions())), output.toString());
+    }
+
+    private static String run(List<String> program, Map<String, int[]> columns) {
+        SILFile silFile = new SILFile();
+        silFile.initializeSILFileState(program);
+        MemoryOutputSink output = new MemoryOutputSink();
+        new SILColumnarRunner(silFile.getInstructions(), silFile.getSymbolTable(), columns)
+                .run(ForkJoinPool.commonPool(), output);
+        return output.toString();
+    }
+
+    private static String lines(String... lines) {
+        StringBuilder text = new StringBuilder();
+        for (String line: lines) {
+            text.append(line).append(System.lineSeparator());
+        }
+        return text.toString();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,140 @@
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Runs every sample program and a large loop in the interpreter and in the JIT tier and compares the outputs. The
+ * interpreter is the reference implementation. Every run is a command line run in a JVM of its own, with "3 4" as
+ * its input, so that a program stopping on an error stops its own JVM only. The JIT tier compiles with javac at runtime: the first
+ * compile of a JVM takes more than a second, the following ones about a tenth of a second. The tests are skipped
+ * on a runtime without javac, where --jit falls back to the interpreter.
+ */
+class SILJitCompilerTest {
+
+    // lines of the body of the large loop, its translation is larger than the largest method HotSpot compiles
+    private static final int LARGE_LOOP_LINES = 300;
+
+    @TempDir
+    Path directory;
+
+    @BeforeAll
+    static void requireJavaCompiler() {
+        assumeTrue(ToolProvider.getSystemJavaCompiler() != null, "the JDK compiler is missing");
+    }
+
+    static String[] samples() {
+        return new String[] {"sample", "expr", "opt", "input", "err", "err2"};
+    }
+
+    @ParameterizedTest
+    @MethodSource("samples")
+    void jitPrintsWhatTheInterpreterPrints(String sample) throws Exception {
+        assertSameRun(sample);
+    }
+
+    @ParameterizedTest
+    @MethodSource("samples")
+    void optimizedJitPrintsWhatTheOptimizedInterpreterPrints(String sample) throws Exception {
+        assertSameRun(sample, "--optimize");
+    }
+
+    @Test
+    void jitRunsALargeLoopLikeTheInterpreter() throws Exception {
+        assertSameRun(Files.write(directory.resolve("large.sil"), largeLoop()));
+    }
+
+    @Test
+    void translationOfALargeLoopFitsTheMethodsHotSpotCompiles() throws IOException {
+        SILFile silFile = new SILFile();
+        silFile.initializeSILFileState(largeLoop());
+        Path source = Files.writeString(directory.resolve("SILJitProgram.java"),
+                SILJitCompiler.generateSource(silFile.getInstructions(), silFile.getSymbolTable()));
+        int result = ToolProvider.getSystemJavaCompiler().run(null, null, null, "-g:none",
+                "-classpath", System.getProperty("java.class.path"), "-d", directory.toString(), source.toString());
+        assertEquals(0, result);
+        byte[] classFile = Files.readAllBytes(directory.resolve("SILJitProgram.class"));
+        assertTrue(SILJitCompiler.largestMethodSize(classFile) <= SILJitCompiler.HUGE_METHOD_LIMIT);
+    }
+
+    private static List<String> largeLoop() {
+        List<String> lines = new ArrayList<>(List.of("10 INTEGER I, S, D", "20 LET I = 0", "30 LET S = 0",
+                "40 LET D = 0"));
+        for (int line = 0; line < LARGE_LOOP_LINES; line++) {
+            lines.add((100 + line)+" LET S = S + I * "+(line % 7 + 1)+" - (I / "+(line % 5 + 1)+")");
+        }
+        // the sub routine and the jump back to the start of the loop cross the methods of the translation
+        lines.addAll(List.of("1000 GOSUB 2000", "1010 LET I = I + 1", "1020 IF I < 1000 THEN GOTO 100",
+                "1030 PRINTLN S", "1040 PRINTLN D", "1050 END", "2000 LET D = D + S / 1000", "2010 RET"));
+        return lines;
+    }
+
+    private static void assertSameRun(String sample, String... options) throws Exception {
+        assertSameRun(sampleFile(sample+".sil"), options);
+    }
+
+    private static void assertSameRun(Path program, String... options) throws Exception {
+        Run interpreted = run(program, options);
+        List<String> jitOptions = new ArrayList<>(List.of(options));
+        jitOptions.add("--jit");
+        Run compiled = run(program, jitOptions.toArray(new String[0]));
+        assertEquals(interpreted.output, compiled.output);
+        // the JIT tier reports every program it could not translate before the interpreter runs it
+        assertFalse(compiled.errors.contains("using the interpreter"), compiled.errors);
+    }
+
+    /**
+     * Runs a program with the command line in a new JVM
+     * @param program is the source file
+     * @param options are the command line options of the run
+     * @return what the run printed to its output and to its error stream
+     */
+    private static Run run(Path program, String... options) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>(List.of(Path.of(System.getProperty("java.home"), "bin", "java")
+                .toString(), "-cp", System.getProperty("java.class.path"), "Main"));
+        command.addAll(List.of(options));
+        command.add(program.toString());
+        Process process = new ProcessBuilder(command).start();
+        try (OutputStream input = process.getOutputStream()) {
+            input.write("3 4\n".getBytes(StandardCharsets.UTF_8));
+        }
+        String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        String errors = new String(process.getErrorStream().readAllBytes(), StandardCharsets.UTF_8);
+        process.waitFor();
+        return new Run(output, errors);
+    }
+
+    private static Path sampleFile(String fileName) {
+        try {
+            return Path.of(SILJitCompilerTest.class.getResource("/samples/"+fileName).toURI());
+        } catch (URISyntaxException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static class Run {
+        final String output;
+        final String errors;
+
+        Run(String output, String errors) {
+            this.output = output;
+            this.errors = errors;
+        }
+    }
+}
\ No newline at end of file
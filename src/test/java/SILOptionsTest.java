@@ -0,0 +1,56 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Parsing of the command line options, a numeric option only consumes its value when it is a number
+ */
+class SILOptionsTest {
+
+    @Test
+    void numericOptionsConsumeTheirValue() {
+        SILOptions options = SILOptions.parse(new String[] {"--threads", "4", "--cache-size", "8",
+                "--memoize-size", "16", "--checkpoint", "state.bin", "--checkpoint-every", "100",
+                "--checkpoint-at", "40", "program.sil"});
+        assertEquals(4, options.threads);
+        assertEquals(8L << 20, options.cacheSize);
+        assertEquals(16, options.memoizeSize);
+        assertTrue(options.memoize);
+        assertEquals(100, options.checkpointInterval);
+        assertEquals(40, options.checkpointLine);
+        assertEquals(List.of("program.sil"), options.fileNames);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"--threads", "--cache-size", "--memoize-size", "--checkpoint-every", "--checkpoint-at"})
+    void invalidValueLeavesTheNextOptionAndFile(String option) {
+        SILOptions options = SILOptions.parse(new String[] {option, "--jit", "program.sil"});
+        assertTrue(options.jit);
+        assertEquals(List.of("program.sil"), options.fileNames);
+        assertEquals(1, options.threads);
+        assertEquals(0, options.cacheSize);
+        assertEquals(1024, options.memoizeSize);
+        assertFalse(options.memoize);
+        assertEquals(0, options.checkpointInterval);
+        assertNull(options.checkpointLine);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"--threads", "--cache-size", "--memoize-size", "--checkpoint-every", "--checkpoint-at"})
+    void fileNameIsNotTakenAsTheValue(String option) {
+        assertEquals(List.of("program.sil"), SILOptions.parse(new String[] {option, "program.sil"}).fileNames);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"--threads", "--cache-size", "--memoize-size", "--checkpoint-every", "--checkpoint-at"})
+    void missingValueAtTheEndKeepsTheFiles(String option) {
+        assertEquals(List.of("program.sil"), SILOptions.parse(new String[] {"program.sil", option}).fileNames);
+    }
+}
\ No newline at end of file
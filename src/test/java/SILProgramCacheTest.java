@@ -0,0 +1,57 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Storing and loading compiled programs, and that a store never leaves files the eviction does not know about
+ */
+class SILProgramCacheTest {
+
+    private static final List<String> SOURCE = List.of("10 INTEGER A", "20 LET A = 4 * 5", "30 PRINTLN A");
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void loadsTheStoredProgram() throws IOException {
+        Path source = Files.write(directory.resolve("program.sil"), SOURCE);
+        SILProgramCache cache = new SILProgramCache(directory.resolve("cache"), 0);
+        byte[] hash = cache.hashOf(source);
+        SILFile compiled = new SILFile();
+        compiled.initializeSILFileState(SOURCE);
+        cache.store(hash, compiled);
+        SILFile loaded = new SILFile();
+        assertTrue(cache.load(hash, loaded));
+        assertEquals(compiled.getInstructions().length, loaded.getInstructions().length);
+    }
+
+    @Test
+    void failedStoreLeavesNoTemporaryFile() throws IOException {
+        Path source = Files.write(directory.resolve("program.sil"), SOURCE);
+        Path cacheDirectory = directory.resolve("cache");
+        SILProgramCache cache = new SILProgramCache(cacheDirectory, 0);
+        byte[] hash = cache.hashOf(source);
+        SILFile compiled = new SILFile();
+        compiled.initializeSILFileState(SOURCE);
+        cache.store(hash, compiled);
+        // a directory that is not empty can not be replaced, so the next store of the program fails on the move
+        Path cacheFile;
+        try (Stream<Path> files = Files.list(cacheDirectory)) {
+            cacheFile = files.findFirst().orElseThrow();
+        }
+        Files.delete(cacheFile);
+        Files.createDirectories(cacheFile.resolve("blocked"));
+        cache.store(hash, compiled);
+        try (Stream<Path> files = Files.list(cacheDirectory)) {
+            assertEquals(List.of(cacheFile), files.toList());
+        }
+    }
+}
\ No newline at end of file
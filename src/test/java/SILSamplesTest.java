@@ -0,0 +1,62 @@
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Runs the sample programs of the test resources like the command line does and compares their outputs with the
+ * recorded ones. Every sample reads the same input, "3 4".
+ */
+class SILSamplesTest {
+
+    static String[] samples() {
+        return new String[] {"sample", "expr", "opt", "input", "err", "err2"};
+    }
+
+    @ParameterizedTest
+    @MethodSource("samples")
+    void interpreterPrintsTheRecordedOutput(String sample) throws IOException {
+        assertEquals(recordedOutputOf(sample), run(sample));
+    }
+
+    @ParameterizedTest
+    @MethodSource("samples")
+    void optimizedProgramPrintsTheRecordedOutput(String sample) throws IOException {
+        assertEquals(recordedOutputOf(sample), run(sample, "--optimize"));
+    }
+
+    /**
+     * Runs a sample through the FileParser
+     * @param sample is the name of the sample without its extension
+     * @param args are the command line options of the run
+     * @return everything the sample printed
+     */
+    static String run(String sample, String... args) {
+        MemoryOutputSink output = new MemoryOutputSink();
+        StreamInputReader input = new StreamInputReader(
+                new ByteArrayInputStream("3 4\n".getBytes(StandardCharsets.UTF_8)));
+        new FileParser(SILOptions.parse(args), output, input).parse(new File(sampleFile(sample+".sil").toString()));
+        output.flush();
+        return output.toString();
+    }
+
+    static String recordedOutputOf(String sample) throws IOException {
+        return Files.readString(sampleFile(sample+".out"));
+    }
+
+    static Path sampleFile(String fileName) {
+        try {
+            return Path.of(SILSamplesTest.class.getResource("/samples/"+fileName).toURI());
+        } catch (URISyntaxException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,51 @@
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * Interactive sessions: every INPUT waits for the next line sent, whatever line separator the client ended the
+ * previous one with
+ */
+class SILSessionTest {
+
+    private static final SILProgram PROGRAM = SILProgram.compile("program", List.of("10 INTEGER X, Y",
+            "20 INPUT X, Y", "30 PRINTLN X + Y", "40 INPUT X, Y", "50 PRINTLN X * Y", "60 END"), new SILOptions());
+
+    @Test
+    void eachInputWaitsForItsLine() throws InterruptedException {
+        assertAnswers("3 4", "5 6");
+    }
+
+    @Test
+    void inputAfterACarriageReturnWaitsForTheNextLine() throws InterruptedException {
+        assertAnswers("3 4\r", "5 6\r");
+    }
+
+    @Test
+    void inputAfterAWindowsLineEndingWaitsForTheNextLine() throws InterruptedException {
+        assertAnswers("3 4\r\n", "5 6");
+    }
+
+    private static void assertAnswers(String first, String second) throws InterruptedException {
+        try (SILSessionRunner runner = new SILSessionRunner()) {
+            SILSession session = runner.open(PROGRAM);
+            session.send(first);
+            assertEquals("7\n", answer(session));
+            // the program reaches its second INPUT before the line is sent
+            Thread.sleep(50);
+            session.send(second);
+            assertEquals("30\n", answer(session));
+        }
+    }
+
+    private static String answer(SILSession session) throws InterruptedException {
+        byte[] output = session.pollOutput(10, TimeUnit.SECONDS);
+        assertNotNull(output, "no answer of the session");
+        return new String(output, Charset.defaultCharset());
+    }
+}
\ No newline at end of file
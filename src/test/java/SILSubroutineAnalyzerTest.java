@@ -0,0 +1,103 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Summaries of the pure subroutines and the results --memoize replays for them
+ */
+class SILSubroutineAnalyzerTest {
+
+    // the subroutine at 100 writes B only when A is not positive
+    private static final List<String> CONDITIONAL_WRITE = List.of(
+            "10 INTEGER A, B",
+            "20 LET A = 1",
+            "30 LET B = 7",
+            "40 GOSUB 100",
+            "50 PRINTLN B",
+            "60 LET B = 9",
+            "70 GOSUB 100",
+            "80 PRINTLN B",
+            "90 END",
+            "100 IF A > 0 THEN GOTO 120",
+            "110 LET B = 5",
+            "120 RET");
+
+    @Test
+    void slotWrittenOnSomePathsIsRead() {
+        SILProgram program = SILProgram.compile("conditional", CONDITIONAL_WRITE, new SILOptions());
+        SILSubroutineAnalyzer.Subroutine subroutine = subroutineAt(program, 100);
+        int a = program.symbolTable.slotOf("A");
+        int b = program.symbolTable.slotOf("B");
+        assertArrayEquals(new int[] {a, b}, subroutine.readSlots);
+        assertArrayEquals(new int[] {b}, subroutine.writeSlots);
+    }
+
+    @Test
+    void slotWrittenOnAllPathsIsNotRead() {
+        SILProgram program = SILProgram.compile("unconditional", List.of(
+                "10 INTEGER A, B",
+                "20 GOSUB 100",
+                "30 END",
+                "100 IF A > 0 THEN GOTO 130",
+                "110 LET B = 5",
+                "120 RET",
+                "130 LET B = A",
+                "140 RET"), new SILOptions());
+        int a = program.symbolTable.slotOf("A");
+        int b = program.symbolTable.slotOf("B");
+        SILSubroutineAnalyzer.Subroutine subroutine = subroutineAt(program, 100);
+        assertArrayEquals(new int[] {a}, subroutine.readSlots);
+        assertArrayEquals(new int[] {b}, subroutine.writeSlots);
+    }
+
+    @Test
+    void slotWrittenOnSomePathsOfACalleeIsRead() {
+        SILProgram program = SILProgram.compile("nested", List.of(
+                "10 INTEGER A, B",
+                "20 GOSUB 100",
+                "30 END",
+                "100 GOSUB 200",
+                "110 RET",
+                "200 IF A > 0 THEN GOTO 220",
+                "210 LET B = 5",
+                "220 RET"), new SILOptions());
+        int a = program.symbolTable.slotOf("A");
+        int b = program.symbolTable.slotOf("B");
+        assertArrayEquals(new int[] {a, b}, subroutineAt(program, 100).readSlots);
+    }
+
+    @Test
+    void subroutineThatPrintsIsImpure() {
+        SILProgram program = SILProgram.compile("print", List.of(
+                "10 INTEGER A",
+                "20 GOSUB 100",
+                "30 END",
+                "100 PRINTLN A",
+                "110 RET"), new SILOptions());
+        assertNull(SILSubroutineAnalyzer.analyze(program.instructions)[indexOf(program, 100)]);
+    }
+
+    @Test
+    void cacheHitKeepsTheValueOfASlotTheSubroutineDidNotWrite() {
+        SILOptions options = SILOptions.parse(new String[] {"--memoize"});
+        MemoryOutputSink output = new MemoryOutputSink();
+        SILProgram.compile("conditional", CONDITIONAL_WRITE, options).run(output, null);
+        assertEquals("7"+System.lineSeparator()+"9"+System.lineSeparator(), output.toString());
+    }
+
+    private static SILSubroutineAnalyzer.Subroutine subroutineAt(SILProgram program, int lineNumber) {
+        return SILSubroutineAnalyzer.analyze(program.instructions)[indexOf(program, lineNumber)];
+    }
+
+    private static int indexOf(SILProgram program, int lineNumber) {
+        for (int index = 0; index < program.instructions.length; index++) {
+            if (program.instructions[index].lineNumber == lineNumber)
+                return index;
+        }
+        throw new IllegalArgumentException("No line "+lineNumber);
+    }
+}
\ No newline at end of file